@@ -0,0 +1,116 @@
+package com.example.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file ({@code -rf json}) against a stored baseline and exits with status 1 when a
+ * benchmark got slower than the threshold, so a build can fail on it:
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.demo.benchmark.BenchmarkComparator baseline.json results.json [10]
+ * </pre>
+ * Benchmarks are matched by name and parameters. A change only counts when it is larger than the threshold, in
+ * percent, and larger than the error margins of both runs together, so noise alone does not fail the build.
+ * Benchmarks missing on either side are listed but never fail it.
+ */
+public class BenchmarkComparator {
+  private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BenchmarkComparator <baseline.json> <results.json> [threshold percent]");
+      System.exit(2);
+    }
+    double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    Map<String, Result> baseline = read(new File(args[0]));
+    Map<String, Result> current = read(new File(args[1]));
+
+    List<String> regressions = compare(baseline, current, thresholdPercent);
+    if (!regressions.isEmpty()) {
+      System.out.println();
+      System.out.println(regressions.size() + " benchmark(s) regressed by more than " + thresholdPercent + "%:");
+      regressions.forEach(name -> System.out.println("  " + name));
+      System.exit(1);
+    }
+  }
+
+  static List<String> compare(Map<String, Result> baseline, Map<String, Result> current, double thresholdPercent) {
+    List<String> regressions = new ArrayList<>();
+    System.out.printf("%-90s %14s %14s %9s  %s%n", "Benchmark", "Baseline", "Current", "Change", "Unit");
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      Result result = entry.getValue();
+      Result base = baseline.get(entry.getKey());
+      if (base == null) {
+        System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", result.score, "new", result.unit);
+        continue;
+      }
+      if (!base.unit.equals(result.unit)) {
+        System.out.printf("%-90s %14s %14s %9s  %s -> %s%n", entry.getKey(), "", "", "unit", base.unit, result.unit);
+        continue;
+      }
+      double changePercent = (result.score - base.score) / base.score * 100.0;
+      // Positive when the benchmark got slower, whichever direction its mode counts in
+      double slowdownPercent = result.higherIsBetter ? -changePercent : changePercent;
+      boolean beyondNoise = Math.abs(result.score - base.score) > result.error + base.error;
+      String verdict = "";
+      if (beyondNoise && slowdownPercent > thresholdPercent) {
+        verdict = "  REGRESSION";
+        regressions.add(entry.getKey());
+      } else if (beyondNoise && slowdownPercent < -thresholdPercent) {
+        verdict = "  improvement";
+      }
+      System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), base.score, result.score,
+          changePercent, result.unit, verdict);
+    }
+    baseline.keySet().stream()
+        .filter(name -> !current.containsKey(name))
+        .forEach(name -> System.out.printf("%-90s %14s %14s %9s%n", name, "", "-", "missing"));
+    return regressions;
+  }
+
+  static Map<String, Result> read(File file) throws IOException {
+    Map<String, Result> results = new TreeMap<>();
+    for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+      JsonNode metric = benchmark.get("primaryMetric");
+      double error = metric.path("scoreError").asDouble(0.0);
+      Result result = new Result(metric.get("score").asDouble(), Double.isNaN(error) ? 0.0 : error,
+          metric.get("scoreUnit").asText(), "thrpt".equals(benchmark.get("mode").asText()));
+      results.put(nameOf(benchmark), result);
+    }
+    return results;
+  }
+
+  private static String nameOf(JsonNode benchmark) {
+    String name = benchmark.get("benchmark").asText().replace(BenchmarkComparator.class.getPackage().getName() + ".", "");
+    Map<String, String> params = new LinkedHashMap<>();
+    JsonNode paramsNode = benchmark.path("params");
+    for (Iterator<String> names = paramsNode.fieldNames(); names.hasNext(); ) {
+      String param = names.next();
+      params.put(param, paramsNode.get(param).asText());
+    }
+    return params.isEmpty() ? name : name + params;
+  }
+
+  static class Result {
+    private final double score;
+    private final double error;
+    private final String unit;
+    private final boolean higherIsBetter;
+
+    Result(double score, double error, String unit, boolean higherIsBetter) {
+      this.score = score;
+      this.error = error;
+      this.unit = unit;
+      this.higherIsBetter = higherIsBetter;
+    }
+  }
+}
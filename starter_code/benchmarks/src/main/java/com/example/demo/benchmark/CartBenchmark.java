@@ -0,0 +1,79 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Cart} changes and {@link UserOrder#createFromCart} for carts of growing size. Every change is undone
+ * within the same operation so the cart keeps its size across invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  private int cartSize;
+
+  private Cart cart;
+  private Item lastItem;
+  private Item newItem;
+
+  @Setup
+  public void setUp() {
+    cart = new Cart();
+    cart.setId(1L);
+    cart.setTotal(BigDecimal.ZERO);
+    for (long id = 1; id <= cartSize; id++) {
+      lastItem = item(id);
+      cart.addItem(lastItem, 2);
+    }
+    newItem = item(cartSize + 1L);
+  }
+
+  @Benchmark
+  public Cart changeQuantity() {
+    cart.addItem(lastItem, 1);
+    cart.removeItem(lastItem, 1);
+    return cart;
+  }
+
+  @Benchmark
+  public Cart addAndRemoveLine() {
+    cart.addItem(newItem, 1);
+    cart.removeItem(newItem, 1);
+    return cart;
+  }
+
+  @Benchmark
+  public UserOrder createFromCart() {
+    return UserOrder.createFromCart(cart);
+  }
+
+  private static Item item(long id) {
+    Item item = new Item();
+    item.setId(id);
+    item.setName("Item " + id);
+    item.setPrice(new BigDecimal("2.99"));
+    item.setDescription("A widget used to benchmark the cart");
+    return item;
+  }
+}
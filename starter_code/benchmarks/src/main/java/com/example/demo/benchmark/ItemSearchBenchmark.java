@@ -0,0 +1,73 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.support.ItemSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead and multi-word queries against a synthetic catalog held in {@link ItemSearchIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemSearchBenchmark {
+  private static final String[] ADJECTIVES = {"round", "square", "small", "large", "red", "blue", "green", "heavy",
+      "light", "smart", "classic", "modern", "wooden", "steel", "plastic", "golden"};
+  private static final String[] NOUNS = {"widget", "gadget", "table", "chair", "lamp", "box", "clock", "shelf",
+      "bottle", "brush", "cable", "charger", "desk", "frame", "hammer", "kettle"};
+
+  @Param({"1000", "10000", "100000"})
+  private int catalogSize;
+
+  private ItemSearchIndex itemSearchIndex;
+
+  @Setup
+  public void setUp() {
+    itemSearchIndex = new ItemSearchIndex(null, null);
+    List<Item> catalog = new ArrayList<>(catalogSize);
+    Random random = new Random(42);
+    for (long id = 1; id <= catalogSize; id++) {
+      Item item = new Item();
+      item.setId(id);
+      item.setName(word(ADJECTIVES, random) + " " + word(NOUNS, random) + " " + id);
+      item.setPrice(new BigDecimal("9.99"));
+      item.setDescription("A " + word(ADJECTIVES, random) + " " + word(ADJECTIVES, random) + " "
+          + word(NOUNS, random) + " for everyday use");
+      catalog.add(item);
+    }
+    itemSearchIndex.load(catalog);
+  }
+
+  @Benchmark
+  public List<Item> typeahead() {
+    return itemSearchIndex.search("wid", 10);
+  }
+
+  @Benchmark
+  public List<Item> multiWord() {
+    return itemSearchIndex.search("round steel wid", 10);
+  }
+
+  private static String word(String[] words, Random random) {
+    return words[random.nextInt(words.length)];
+  }
+}
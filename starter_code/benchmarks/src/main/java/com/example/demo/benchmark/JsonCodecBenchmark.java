@@ -0,0 +1,118 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.requests.LoginRequest;
+import com.example.demo.support.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-login {@code new ObjectMapper()} the login filter used to create with the shared
+ * {@link JsonCodec}, and the reflective accessors with the bytecode-generated ones. Run with
+ * {@code -prof gc} to see the allocation per operation; the {@code bytes} counter gives bytes/sec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+  private static final byte[] LOGIN_REQUEST =
+      "{\"username\":\"benchmark_user\",\"password\":\"benchmark_password\"}".getBytes(StandardCharsets.UTF_8);
+
+  @Param({"reflection", "afterburner", "blackbird"})
+  private String accessorMode;
+
+  private JsonCodec jsonCodec;
+  private Cart cart;
+  private UserOrder order;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    if (accessorMode.equals("afterburner")) {
+      objectMapper.registerModule(new AfterburnerModule());
+    } else if (accessorMode.equals("blackbird")) {
+      objectMapper.registerModule(new BlackbirdModule());
+    }
+    jsonCodec = new JsonCodec(objectMapper);
+
+    User user = new User();
+    user.setId(1L);
+    user.setUsername("benchmark_user");
+    cart = new Cart();
+    cart.setId(1L);
+    cart.setUser(user);
+    for (long id = 1; id <= 10; id++) {
+      Item item = new Item();
+      item.setId(id);
+      item.setName("Item " + id);
+      item.setPrice(new BigDecimal("2.99"));
+      item.setDescription("A widget used to benchmark serialization");
+      cart.addItem(item);
+    }
+    order = UserOrder.createFromCart(cart);
+    order.setId(1L);
+  }
+
+  @Benchmark
+  public LoginRequest readLoginRequestNewMapper(Bytes counter) throws IOException {
+    counter.bytes += LOGIN_REQUEST.length;
+    return new ObjectMapper().readValue(new ByteArrayInputStream(LOGIN_REQUEST), LoginRequest.class);
+  }
+
+  @Benchmark
+  public LoginRequest readLoginRequest(Bytes counter) throws IOException {
+    counter.bytes += LOGIN_REQUEST.length;
+    return jsonCodec.read(new ByteArrayInputStream(LOGIN_REQUEST), LoginRequest.class);
+  }
+
+  @Benchmark
+  public byte[] writeCart(Bytes counter) throws IOException {
+    byte[] json = jsonCodec.write(cart);
+    counter.bytes += json.length;
+    return json;
+  }
+
+  @Benchmark
+  public byte[] writeUserOrder(Bytes counter) throws IOException {
+    byte[] json = jsonCodec.write(order);
+    counter.bytes += json.length;
+    return json;
+  }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.config.TokenProperties;
+import com.example.demo.constant.AppConstant;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.security.support.VerifiedTokenCache;
+import com.example.demo.service.TokenService;
+import com.example.demo.service.impl.TokenServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The token work of the two security filters with the default HS512 key: the login filter signs a token carrying
+ * the user and cart ids, the authentication filter turns the bearer header back into the principal, either through
+ * the {@link VerifiedTokenCache} or verifying every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+  private static final AuthenticatedUser USER = new AuthenticatedUser("benchmark_user", 1L, 1L);
+
+  private TokenService tokenService;
+
+  /**
+   * Only the authentication filter runs with and without the cache.
+   */
+  @State(Scope.Benchmark)
+  public static class Authentication {
+    @Param({"true", "false"})
+    private boolean tokenCache;
+
+    private VerifiedTokenCache verifiedTokenCache;
+    private String authHeader;
+
+    @Setup
+    public void setUp(JwtFilterBenchmark benchmark) {
+      verifiedTokenCache = new VerifiedTokenCache(10000);
+      authHeader = AppConstant.BEARER_HEADER + benchmark.tokenService.createToken(USER);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    tokenService = new TokenServiceImpl(new TokenProperties());
+  }
+
+  @Benchmark
+  public String login() {
+    return AppConstant.BEARER_HEADER + tokenService.createToken(USER);
+  }
+
+  @Benchmark
+  public AuthenticatedUser authenticate(Authentication state) {
+    String token = state.authHeader.replace(AppConstant.BEARER_HEADER, "");
+    DecodedJWT jwt = state.tokenCache
+        ? state.verifiedTokenCache.verify(token, tokenService::verify)
+        : tokenService.verify(token);
+    return AuthenticatedUser.from(jwt);
+  }
+}
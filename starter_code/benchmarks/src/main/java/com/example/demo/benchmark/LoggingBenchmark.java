@@ -0,0 +1,137 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.appender.listener.LoggingEventAppenderListenerImpl;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What an INFO line costs the thread that logs it, with the synchronous pattern file appender using {@code %C}
+ * the application had before and with the ring buffer in front of the JSON file appender it has now. Four threads
+ * log at once, like concurrent requests. The async numbers only cover putting the event into the ring buffer,
+ * events that do not fit are dropped: the score counts them like written ones, the {@code dropped} counter reports
+ * how many of them each iteration dropped. Compare the score of both setups only after subtracting the drops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+  @Param({"sync-pattern-caller", "async-json"})
+  private String setup;
+
+  private LoggerContext loggerContext;
+  private Logger logger;
+  private File directory;
+  private final ThreadLocal<Outcome> outcomes = new ThreadLocal<>();
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Outcome {
+    public long dropped;
+
+    @Setup(Level.Iteration)
+    public void reset(LoggingBenchmark benchmark) {
+      dropped = 0;
+      benchmark.outcomes.set(this);
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("logging-benchmark").toFile();
+    loggerContext = new LoggerContext();
+    Appender<ILoggingEvent> appender = setup.equals("async-json") ? asyncJsonAppender() : syncPatternAppender();
+    logger = loggerContext.getLogger("com.example.demo.controllers.OrderController");
+    logger.addAppender(appender);
+    logger.setAdditive(false);
+  }
+
+  @TearDown
+  public void tearDown() {
+    loggerContext.stop();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  @Benchmark
+  public void info(Outcome outcome) {
+    logger.info("Order submitted for user {} with {} items", "benchmark_user", 3);
+  }
+
+  private Appender<ILoggingEvent> syncPatternAppender() {
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern("%d %p %C{1.} [%t] %m%n");
+    encoder.start();
+    return fileAppender("app-logger-pattern.log", encoder, true);
+  }
+
+  private Appender<ILoggingEvent> asyncJsonAppender() {
+    LogstashEncoder encoder = new LogstashEncoder();
+    encoder.setContext(loggerContext);
+    encoder.start();
+    LoggingEventAsyncDisruptorAppender asyncAppender = new LoggingEventAsyncDisruptorAppender();
+    asyncAppender.setContext(loggerContext);
+    asyncAppender.setRingBufferSize(8192);
+    // A full ring buffer fails the append on the logging thread itself
+    asyncAppender.addListener(new LoggingEventAppenderListenerImpl() {
+      @Override
+      public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+        Outcome outcome = outcomes.get();
+        if (outcome != null) {
+          outcome.dropped++;
+        }
+      }
+    });
+    asyncAppender.addAppender(fileAppender("app-logger-json.log", encoder, false));
+    asyncAppender.start();
+    return asyncAppender;
+  }
+
+  private FileAppender<ILoggingEvent> fileAppender(String name, Encoder<ILoggingEvent> encoder,
+                                                   boolean immediateFlush) {
+    FileAppender<ILoggingEvent> appender = new FileAppender<>();
+    appender.setContext(loggerContext);
+    appender.setFile(new File(directory, name).getPath());
+    appender.setEncoder(encoder);
+    appender.setImmediateFlush(immediateFlush);
+    appender.start();
+    return appender;
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.support.CalibratedBCryptPasswordEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost per strength, every step doubles it. Gives the numbers behind {@code app.security.bcrypt} and the
+ * size of the hashing pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+  private static final String PASSWORD = "benchmark_password";
+
+  @Param({"10", "11", "12"})
+  private int strength;
+
+  private CalibratedBCryptPasswordEncoder passwordEncoder;
+  private String encodedPassword;
+
+  @Setup
+  public void setUp() {
+    passwordEncoder = new CalibratedBCryptPasswordEncoder(strength);
+    encodedPassword = passwordEncoder.encode(PASSWORD);
+  }
+
+  @Benchmark
+  public String encode() {
+    return passwordEncoder.encode(PASSWORD);
+  }
+
+  @Benchmark
+  public boolean matches() {
+    return passwordEncoder.matches(PASSWORD, encodedPassword);
+  }
+}
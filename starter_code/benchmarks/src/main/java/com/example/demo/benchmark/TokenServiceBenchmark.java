@@ -0,0 +1,80 @@
+package com.example.demo.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.config.TokenProperties;
+import com.example.demo.service.TokenService;
+import com.example.demo.service.impl.TokenServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+  @Param({"HS512", "RS256", "RS512", "ES256", "ES512"})
+  private String algorithm;
+
+  private TokenService tokenService;
+  private String token;
+
+  @Setup
+  public void setUp() throws Exception {
+    TokenProperties.Key key = new TokenProperties.Key();
+    key.setId(algorithm.toLowerCase());
+    key.setAlgorithm(algorithm);
+    if (algorithm.startsWith("HS")) {
+      key.setSecret("C8vm00vNHNyCKALrHQafVVZdSNt0oAN7");
+    } else {
+      KeyPair keyPair = generateKeyPair();
+      key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+      key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+    }
+    TokenProperties properties = new TokenProperties();
+    properties.setActiveKeyId(key.getId());
+    properties.setKeys(Collections.singletonList(key));
+
+    tokenService = new TokenServiceImpl(properties);
+    token = tokenService.createToken("benchmark_user");
+  }
+
+  @Benchmark
+  public String sign() {
+    return tokenService.createToken("benchmark_user");
+  }
+
+  @Benchmark
+  public DecodedJWT verify() {
+    return tokenService.verify(token);
+  }
+
+  private KeyPair generateKeyPair() throws Exception {
+    if (algorithm.startsWith("RS")) {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(2048);
+      return generator.generateKeyPair();
+    }
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec(algorithm.equals("ES256") ? "secp256r1" : "secp521r1"));
+    return generator.generateKeyPair();
+  }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BenchmarkComparatorTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void compare_slowerThanThresholdAndNoiseIsARegression() {
+    List<String> regressions = BenchmarkComparator.compare(
+        results("A.slower", throughput(100, 1), "B.withinThreshold", throughput(100, 1),
+            "C.withinNoise", throughput(100, 15)),
+        results("A.slower", throughput(80, 1), "B.withinThreshold", throughput(95, 1),
+            "C.withinNoise", throughput(80, 15)),
+        10.0);
+
+    assertEquals(Collections.singletonList("A.slower"), regressions);
+  }
+
+  @Test
+  public void compare_directionFollowsTheMode() {
+    List<String> regressions = BenchmarkComparator.compare(
+        results("A.fasterThroughput", throughput(100, 1), "B.slowerAverageTime", averageTime(100, 1),
+            "C.fasterAverageTime", averageTime(100, 1)),
+        results("A.fasterThroughput", throughput(120, 1), "B.slowerAverageTime", averageTime(120, 1),
+            "C.fasterAverageTime", averageTime(80, 1)),
+        10.0);
+
+    assertEquals(Collections.singletonList("B.slowerAverageTime"), regressions);
+  }
+
+  @Test
+  public void compare_missingNewAndChangedUnitNeverFail() {
+    Map<String, BenchmarkComparator.Result> baseline =
+        results("A.removed", throughput(100, 1), "C.unitChanged", throughput(100, 1));
+    Map<String, BenchmarkComparator.Result> current = results("B.added", throughput(1, 0),
+        "C.unitChanged", new BenchmarkComparator.Result(1, 0, "ops/s", true));
+
+    assertTrue(BenchmarkComparator.compare(baseline, current, 10.0).isEmpty());
+  }
+
+  @Test
+  public void read_namesByParametersAndTakesDirectionFromMode() throws Exception {
+    File file = folder.newFile("results.json");
+    Files.write(file.toPath(), ("["
+        + "{\"benchmark\":\"com.example.demo.benchmark.CartBenchmark.addItem\",\"mode\":\"avgt\","
+        + "\"params\":{\"lines\":\"10\"},"
+        + "\"primaryMetric\":{\"score\":2.0,\"scoreError\":\"NaN\",\"scoreUnit\":\"us/op\"}},"
+        + "{\"benchmark\":\"com.example.demo.benchmark.LoggingBenchmark.info\",\"mode\":\"thrpt\","
+        + "\"primaryMetric\":{\"score\":100.0,\"scoreError\":5.0,\"scoreUnit\":\"ops/ms\"}}"
+        + "]").getBytes(StandardCharsets.UTF_8));
+
+    Map<String, BenchmarkComparator.Result> results = BenchmarkComparator.read(file);
+
+    assertEquals(Arrays.asList("CartBenchmark.addItem{lines=10}", "LoggingBenchmark.info"),
+        Arrays.asList(results.keySet().toArray()));
+    // NaN errors, e.g. of single iteration runs, count as no error: 2.0 -> 2.5 us/op is a regression
+    assertEquals(Collections.singletonList("CartBenchmark.addItem{lines=10}"), BenchmarkComparator.compare(
+        results, results("CartBenchmark.addItem{lines=10}", averageTime(2.5, 0)), 10.0));
+    // Throughput counts up: 100 -> 50 ops/ms is a regression, 100 -> 150 is not
+    assertEquals(Collections.singletonList("LoggingBenchmark.info"), BenchmarkComparator.compare(
+        results, results("LoggingBenchmark.info", throughput(50, 0)), 10.0));
+    assertTrue(BenchmarkComparator.compare(
+        results, results("LoggingBenchmark.info", throughput(150, 0)), 10.0).isEmpty());
+  }
+
+  private static Map<String, BenchmarkComparator.Result> results(Object... namesAndResults) {
+    Map<String, BenchmarkComparator.Result> results = new HashMap<>();
+    for (int i = 0; i < namesAndResults.length; i += 2) {
+      results.put((String) namesAndResults[i], (BenchmarkComparator.Result) namesAndResults[i + 1]);
+    }
+    return results;
+  }
+
+  private static BenchmarkComparator.Result throughput(double score, double error) {
+    return new BenchmarkComparator.Result(score, error, "ops/ms", true);
+  }
+
+  private static BenchmarkComparator.Result averageTime(double score, double error) {
+    return new BenchmarkComparator.Result(score, error, "us/op", false);
+  }
+}
@@ -1,12 +1,13 @@
 package com.example.demo;
 
+import com.example.demo.config.BCryptProperties;
+import com.example.demo.security.support.CalibratedBCryptPasswordEncoder;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
@@ -18,8 +19,12 @@ public class SareetaApplication {
   }
 
   @Bean
-  public BCryptPasswordEncoder bCryptPasswordEncoder() {
-    return new BCryptPasswordEncoder();
+  public CalibratedBCryptPasswordEncoder bCryptPasswordEncoder(BCryptProperties properties) {
+    if (properties.getStrength() != null) {
+      return new CalibratedBCryptPasswordEncoder(properties.getStrength());
+    }
+    return CalibratedBCryptPasswordEncoder.calibrate(
+        properties.getTargetHashMillis(), properties.getMinStrength(), properties.getMaxStrength());
   }
 
 }
@@ -0,0 +1,94 @@
+package com.example.demo.config;
+
+import com.example.demo.support.PersistenceExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the REST handlers on the {@link PersistenceExecutor} and hands the servlet thread back to the connector
+ * while they wait for the database. The handlers stay as they are: their invocation is wrapped into a
+ * {@link DeferredResult}, which Spring MVC completes on an async dispatch with the handler's own return value.
+ * <p>
+ * A full executor answers 503 right away, a handler that does not finish within the timeout answers 503 and is
+ * skipped if it has not started yet.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.web.execution-mode", havingValue = "async")
+public class AsyncHandlerConfig implements WebMvcRegistrations {
+  private final Logger logger = LoggerFactory.getLogger(AsyncHandlerConfig.class);
+  private final PersistenceExecutor persistenceExecutor;
+
+  public AsyncHandlerConfig(PersistenceExecutor persistenceExecutor) {
+    this.persistenceExecutor = persistenceExecutor;
+  }
+
+  @Override
+  public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+    return new RequestMappingHandlerAdapter() {
+      @Override
+      protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (!AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), RestController.class)) {
+          return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new AsyncHandlerMethod(handlerMethod);
+      }
+    };
+  }
+
+  private static ResponseEntity<?> serviceUnavailable() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+  }
+
+  private class AsyncHandlerMethod extends ServletInvocableHandlerMethod {
+
+    AsyncHandlerMethod(HandlerMethod handlerMethod) {
+      super(handlerMethod);
+    }
+
+    /**
+     * Only the first dispatch comes here, the async dispatch carrying the result invokes a wrapper that
+     * returns it.
+     */
+    @Override
+    protected Object doInvoke(Object... args) {
+      CompletableFuture<Object> result;
+      try {
+        result = persistenceExecutor.submit(() -> super.doInvoke(args));
+      } catch (RejectedExecutionException e) {
+        // HandlerMethod has a logger of its own
+        AsyncHandlerConfig.this.logger.error("Can not run {}, the persistence executor is full",
+            getMethod().getName());
+        return serviceUnavailable();
+      }
+      DeferredResult<Object> deferredResult = new DeferredResult<>(persistenceExecutor.getTimeoutMillis(),
+          serviceUnavailable());
+      deferredResult.onTimeout(() -> {
+        AsyncHandlerConfig.this.logger.error("{} did not finish within {} ms", getMethod().getName(),
+            persistenceExecutor.getTimeoutMillis());
+        persistenceExecutor.abandon(result);
+      });
+      result.whenComplete((value, error) -> {
+        if (error != null) {
+          deferredResult.setErrorResult(error);
+        } else {
+          deferredResult.setResult(value);
+        }
+      });
+      return deferredResult;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.security.bcrypt")
+public class BCryptProperties {
+  /**
+   * Fixed BCrypt strength. When not set, the strength is calibrated at startup.
+   */
+  private Integer strength;
+  private long targetHashMillis = 250;
+  private int minStrength = 10;
+  private int maxStrength = 16;
+
+  public Integer getStrength() {
+    return strength;
+  }
+
+  public void setStrength(Integer strength) {
+    this.strength = strength;
+  }
+
+  public long getTargetHashMillis() {
+    return targetHashMillis;
+  }
+
+  public void setTargetHashMillis(long targetHashMillis) {
+    this.targetHashMillis = targetHashMillis;
+  }
+
+  public int getMinStrength() {
+    return minStrength;
+  }
+
+  public void setMinStrength(int minStrength) {
+    this.minStrength = minStrength;
+  }
+
+  public int getMaxStrength() {
+    return maxStrength;
+  }
+
+  public void setMaxStrength(int maxStrength) {
+    this.maxStrength = maxStrength;
+  }
+}
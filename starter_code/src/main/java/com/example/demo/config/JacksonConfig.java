@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Optional bytecode-generated property accessors for the application ObjectMapper. Spring Boot registers
+ * every {@link Module} bean with the mapper it builds. Blackbird is the choice on Java 11+, Afterburner
+ * on Java 8.
+ */
+@Configuration
+public class JacksonConfig {
+
+  @Bean
+  @ConditionalOnProperty(name = "app.json.accessor-mode", havingValue = "afterburner")
+  public Module afterburnerModule() {
+    return new AfterburnerModule();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "app.json.accessor-mode", havingValue = "blackbird")
+  public Module blackbirdModule() {
+    return new BlackbirdModule();
+  }
+}
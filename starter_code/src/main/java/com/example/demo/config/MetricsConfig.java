@@ -0,0 +1,101 @@
+package com.example.demo.config;
+
+import com.example.demo.security.support.PasswordHashingExecutor;
+import com.example.demo.security.support.VerifiedTokenCache;
+import com.example.demo.service.impl.OrderSubmissionServiceImpl;
+import com.example.demo.service.impl.WriteBehindCartStore;
+import com.example.demo.support.CartLocks;
+import com.example.demo.support.IdempotencyCache;
+import com.example.demo.support.PersistenceExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the counters the components already keep. The connection pool, Hibernate and the request timers
+ * are bound by Spring Boot itself. Components that only exist in some modes are bound when they are there.
+ */
+@Configuration
+public class MetricsConfig {
+
+  @Bean
+  public MeterBinder securityMetrics(VerifiedTokenCache tokenCache, PasswordHashingExecutor hashingExecutor) {
+    return registry -> {
+      FunctionCounter.builder("token.cache.requests", tokenCache, VerifiedTokenCache::getHitCount)
+          .tag("result", "hit").register(registry);
+      FunctionCounter.builder("token.cache.requests", tokenCache, VerifiedTokenCache::getMissCount)
+          .tag("result", "miss").register(registry);
+      Gauge.builder("token.cache.size", tokenCache, VerifiedTokenCache::getSize).register(registry);
+
+      Gauge.builder("password.hashing.executor.queued", hashingExecutor, PasswordHashingExecutor::getQueueSize)
+          .register(registry);
+      Gauge.builder("password.hashing.executor.active", hashingExecutor, PasswordHashingExecutor::getActiveCount)
+          .register(registry);
+      FunctionCounter.builder("password.hashing.executor.rejected", hashingExecutor,
+          PasswordHashingExecutor::getRejectedCount).register(registry);
+      FunctionTimer.builder("password.hashing.executor.queue.wait", hashingExecutor,
+          PasswordHashingExecutor::getCompletedCount, executor -> executor.getTotalQueueWait(TimeUnit.NANOSECONDS),
+          TimeUnit.NANOSECONDS).register(registry);
+      // Its rate is the number of hashing threads busy on average
+      FunctionCounter.builder("password.hashing.executor.busy", hashingExecutor,
+          executor -> executor.getTotalHashTime(TimeUnit.NANOSECONDS) / 1e9).baseUnit("seconds").register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder cartMetrics(CartLocks cartLocks, ObjectProvider<WriteBehindCartStore> writeBehindCartStore) {
+    return registry -> {
+      FunctionCounter.builder("cart.locks.contended", cartLocks, CartLocks::getContendedCount).register(registry);
+      writeBehindCartStore.ifAvailable(cartStore -> {
+        Gauge.builder("cart.store.cached", cartStore, WriteBehindCartStore::getCachedCount).register(registry);
+        Gauge.builder("cart.store.dirty", cartStore, WriteBehindCartStore::getDirtyCount).register(registry);
+      });
+    };
+  }
+
+  @Bean
+  public MeterBinder orderMetrics(IdempotencyCache idempotencyCache,
+                                  ObjectProvider<OrderSubmissionServiceImpl> orderSubmissionService) {
+    return registry -> {
+      FunctionCounter.builder("order.idempotency.replayed", idempotencyCache, IdempotencyCache::getReplayedCount)
+          .register(registry);
+      Gauge.builder("order.idempotency.size", idempotencyCache, IdempotencyCache::getSize).register(registry);
+      orderSubmissionService.ifAvailable(submissions -> {
+        Gauge.builder("order.submissions.queued", submissions, OrderSubmissionServiceImpl::getQueueSize)
+            .register(registry);
+        Gauge.builder("order.submissions.capacity", submissions, OrderSubmissionServiceImpl::getQueueCapacity)
+            .register(registry);
+        FunctionCounter.builder("order.submissions", submissions, OrderSubmissionServiceImpl::getSubmittedCount)
+            .tag("result", "submitted").register(registry);
+        FunctionCounter.builder("order.submissions", submissions, OrderSubmissionServiceImpl::getRejectedCount)
+            .tag("result", "rejected").register(registry);
+        FunctionCounter.builder("order.submissions", submissions, OrderSubmissionServiceImpl::getWrittenCount)
+            .tag("result", "written").register(registry);
+        FunctionCounter.builder("order.submissions", submissions, OrderSubmissionServiceImpl::getFailedCount)
+            .tag("result", "failed").register(registry);
+        FunctionCounter.builder("order.submissions.batches", submissions, OrderSubmissionServiceImpl::getBatchCount)
+            .register(registry);
+      });
+    };
+  }
+
+  @Bean
+  public MeterBinder persistenceExecutorMetrics(ObjectProvider<PersistenceExecutor> persistenceExecutor) {
+    return registry -> persistenceExecutor.ifAvailable(executor -> {
+      Gauge.builder("persistence.executor.queued", executor, PersistenceExecutor::getQueueSize).register(registry);
+      Gauge.builder("persistence.executor.active", executor, PersistenceExecutor::getActiveCount).register(registry);
+      FunctionCounter.builder("persistence.executor.rejected", executor, PersistenceExecutor::getRejectedCount)
+          .register(registry);
+      FunctionCounter.builder("persistence.executor.timed.out", executor, PersistenceExecutor::getTimedOutCount)
+          .register(registry);
+      FunctionTimer.builder("persistence.executor.queue.wait", executor, PersistenceExecutor::getCompletedCount,
+          persistence -> persistence.getTotalQueueWait(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS).register(registry);
+    });
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.security.token")
+public class TokenProperties {
+  private String activeKeyId;
+  private List<Key> keys = new ArrayList<>();
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  public void setActiveKeyId(String activeKeyId) {
+    this.activeKeyId = activeKeyId;
+  }
+
+  public List<Key> getKeys() {
+    return keys;
+  }
+
+  public void setKeys(List<Key> keys) {
+    this.keys = keys;
+  }
+
+  public static class Key {
+    private String id;
+    private String algorithm = "HS512";
+    private String secret;
+    private String publicKey;
+    private String privateKey;
+
+    public String getId() {
+      return id;
+    }
+
+    public void setId(String id) {
+      this.id = id;
+    }
+
+    public String getAlgorithm() {
+      return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+      this.algorithm = algorithm;
+    }
+
+    public String getSecret() {
+      return secret;
+    }
+
+    public void setSecret(String secret) {
+      this.secret = secret;
+    }
+
+    public String getPublicKey() {
+      return publicKey;
+    }
+
+    public void setPublicKey(String publicKey) {
+      this.publicKey = publicKey;
+    }
+
+    public String getPrivateKey() {
+      return privateKey;
+    }
+
+    public void setPrivateKey(String privateKey) {
+      this.privateKey = privateKey;
+    }
+  }
+}
@@ -3,7 +3,17 @@ package com.example.demo.config;
 import com.example.demo.constant.AppConstant;
 import com.example.demo.security.filter.JwtAuthenticationFilter;
 import com.example.demo.security.filter.JwtAuthenticationProcessingFilter;
+import com.example.demo.security.support.PasswordHashingExecutor;
+import com.example.demo.security.support.VerifiedTokenCache;
+import com.example.demo.service.PasswordRehashService;
+import com.example.demo.service.TokenService;
+import com.example.demo.support.JsonCodec;
 import com.example.demo.service.impl.UserDetailsServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -20,10 +30,25 @@ import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   private final UserDetailsServiceImpl userDetailsService;
   private final BCryptPasswordEncoder passwordEncoder;
+  private final TokenService tokenService;
+  private final VerifiedTokenCache verifiedTokenCache;
+  private final PasswordHashingExecutor hashingExecutor;
+  private final PasswordRehashService passwordRehashService;
+  private final JsonCodec jsonCodec;
+  private final long loginTimeout;
 
-  public WebSecurityConfig(UserDetailsServiceImpl userDetailsService, BCryptPasswordEncoder passwordEncoder) {
+  public WebSecurityConfig(UserDetailsServiceImpl userDetailsService, BCryptPasswordEncoder passwordEncoder,
+                           TokenService tokenService, VerifiedTokenCache verifiedTokenCache,
+                           PasswordHashingExecutor hashingExecutor, PasswordRehashService passwordRehashService,
+                           JsonCodec jsonCodec, @Value("${app.security.hashing.timeout-ms:10000}") long loginTimeout) {
     this.userDetailsService = userDetailsService;
     this.passwordEncoder = passwordEncoder;
+    this.tokenService = tokenService;
+    this.verifiedTokenCache = verifiedTokenCache;
+    this.hashingExecutor = hashingExecutor;
+    this.passwordRehashService = passwordRehashService;
+    this.jsonCodec = jsonCodec;
+    this.loginTimeout = loginTimeout;
   }
 
   @Override
@@ -36,18 +61,31 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   protected void configure(HttpSecurity http) throws Exception {
     http.cors().and().csrf().disable().authorizeRequests()
         .antMatchers(HttpMethod.POST, AppConstant.CREATE_USER_URI).permitAll()
+        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+        .requestMatchers(EndpointRequest.to(PrometheusScrapeEndpoint.class)).access(scrapeAccess())
         .anyRequest().authenticated()
         .and()
-        .addFilter(new JwtAuthenticationProcessingFilter(authenticationManager()))
-        .addFilter(new JwtAuthenticationFilter(authenticationManager()))
+        .addFilter(new JwtAuthenticationProcessingFilter(authenticationManager(), tokenService, hashingExecutor,
+            passwordRehashService, jsonCodec, loginTimeout))
+        .addFilter(new JwtAuthenticationFilter(authenticationManager(), tokenService, verifiedTokenCache))
         .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
         .and()
         .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED));
   }
 
+  /**
+   * The scrape endpoint is open only when actuator runs on its own management port, which is bound to an internal
+   * address. Served on the application port it needs a token like any other request.
+   */
+  private String scrapeAccess() {
+    return ManagementPortType.get(getApplicationContext().getEnvironment()) == ManagementPortType.DIFFERENT
+        ? "permitAll" : "authenticated";
+  }
+
   @Override
   protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-    auth.parentAuthenticationManager(authenticationManagerBean())
+    // The login filter erases them itself once it has checked the stored hash's cost
+    auth.eraseCredentials(false)
         .userDetailsService(userDetailsService)
         .passwordEncoder(passwordEncoder);
   }
@@ -5,6 +5,23 @@ public class AppConstant {
   public static final String AUTHORIZATION_HEADER = "Authorization";
   public static final String BEARER_HEADER = "Bearer ";
   public static final long TOKEN_EXPIRATION_TIME = 24 * 60 * 60 * 1000;
+  public static final String USER_ID_CLAIM = "uid";
+  public static final String CART_ID_CLAIM = "cid";
   public static final String SECRET_KEY = "C8vm00vNHNyCKALrHQafVVZdSNt0oAN7";
   public static final int PASSWORD_MIN_LENGTH = 8;
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+  public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+  public static final int DEFAULT_PAGE_SIZE = 20;
+  public static final int MAX_PAGE_SIZE = 100;
+  public static final int MAX_CART_BATCH_SIZE = 100;
+  public static final int MAX_CART_LINE_QUANTITY = 10_000;
+  public static final int DEFAULT_SEARCH_LIMIT = 10;
+  public static final String NDJSON_VALUE = "application/x-ndjson";
+  public static final int EXPORT_FETCH_SIZE = 500;
+  public static final String ITEM_CACHE_REGION = "item";
+  public static final String USER_CACHE_REGION = "user";
+  public static final String USER_NATURAL_ID_CACHE_REGION = "user-natural-id";
 }
@@ -1,25 +1,35 @@
 package com.example.demo.controllers;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.demo.model.persistence.Cart;
+import com.example.demo.constant.AppConstant;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartBatchView;
+import com.example.demo.model.responses.CartOperationResult;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.CartStore;
+import com.example.demo.support.CartLocks;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -27,52 +37,127 @@ public class CartController {
   private final Logger logger = LoggerFactory.getLogger(CartController.class);
 
   @Autowired
-  private UserRepository userRepository;
+  private CartStore cartStore;
 
   @Autowired
-  private CartRepository cartRepository;
+  private ItemRepository itemRepository;
 
   @Autowired
-  private ItemRepository itemRepository;
+  private CartLocks cartLocks;
 
   @PostMapping("/addToCart")
-  public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-    User user = userRepository.findByUsername(request.getUsername());
-    if (user == null) {
-      logger.error("Not found user with username: {}", request.getUsername());
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-    }
-    Optional<Item> item = itemRepository.findById(request.getItemId());
-    if (!item.isPresent()) {
-      logger.error("Not found item with id: {}", request.getItemId());
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+  public ResponseEntity<CartView> addTocart(@RequestBody ModifyCartRequest request,
+                                            @AuthenticationPrincipal AuthenticatedUser principal) {
+    if (request.getQuantity() <= 0) {
+      logger.error("Can not add to cart. Invalid quantity: {}", request.getQuantity());
+      return ResponseEntity.badRequest().build();
     }
-    Cart cart = user.getCart();
-    IntStream.range(0, request.getQuantity())
-        .forEach(i -> cart.addItem(item.get()));
+    // Load, change and save under the user's lock, concurrent requests of one user would lose updates otherwise
+    return cartLocks.withLock(request.getUsername(), () -> {
+      Optional<Item> item = itemRepository.findById(request.getItemId());
+      if (!item.isPresent()) {
+        logger.error("Not found item with id: {}", request.getItemId());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      }
+      CartView cart;
+      try {
+        cart = cartStore.addItem(request.getUsername(), findCartId(principal, request.getUsername()),
+            item.get(), request.getQuantity());
+      } catch (IllegalArgumentException e) {
+        logger.error("Can not add to cart. {}", e.getMessage());
+        return ResponseEntity.badRequest().build();
+      }
+      if (cart == null) {
+        logger.error("Not found user with username: {}", request.getUsername());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      }
 
-    logger.info("Item {} successfully added to cart", item.get().getName());
-    return ResponseEntity.ok(cartRepository.save(cart));
+      logger.info("Item {} successfully added to cart", item.get().getName());
+      return ResponseEntity.ok(cart);
+    });
   }
 
   @PostMapping("/removeFromCart")
-  public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-    User user = userRepository.findByUsername(request.getUsername());
-    if (user == null) {
-      logger.error("Not found user with username: {}", request.getUsername());
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+  public ResponseEntity<CartView> removeFromcart(@RequestBody ModifyCartRequest request,
+                                                 @AuthenticationPrincipal AuthenticatedUser principal) {
+    if (request.getQuantity() <= 0) {
+      logger.error("Can not remove from cart. Invalid quantity: {}", request.getQuantity());
+      return ResponseEntity.badRequest().build();
     }
-    Optional<Item> item = itemRepository.findById(request.getItemId());
-    if (!item.isPresent()) {
-      logger.error("Not found item with id: {}", request.getItemId());
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    return cartLocks.withLock(request.getUsername(), () -> {
+      Optional<Item> item = itemRepository.findById(request.getItemId());
+      if (!item.isPresent()) {
+        logger.error("Not found item with id: {}", request.getItemId());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      }
+      CartView cart = cartStore.removeItem(request.getUsername(), findCartId(principal, request.getUsername()),
+          item.get(), request.getQuantity());
+      if (cart == null) {
+        logger.error("Not found user with username: {}", request.getUsername());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      }
+
+      logger.info("Item {} successfully removed from cart", item.get().getName());
+      return ResponseEntity.ok(cart);
+    });
+  }
+
+  /**
+   * Applies a list of adds and removes with one item query and one cart save, e.g. to restore a saved basket.
+   * Operations on unknown items or that would exceed the maximum line quantity are skipped and reported, the others
+   * are applied in order.
+   */
+  @PostMapping("/batch")
+  public ResponseEntity<CartBatchView> modifyCart(@RequestBody ModifyCartBatchRequest request,
+                                                  @AuthenticationPrincipal AuthenticatedUser principal) {
+    List<CartOperation> operations = request.getOperations();
+    if (operations == null || operations.isEmpty() || operations.size() > AppConstant.MAX_CART_BATCH_SIZE) {
+      logger.error("Can not modify cart. Invalid number of operations: {}", operations == null ? 0 : operations.size());
+      return ResponseEntity.badRequest().build();
+    }
+    if (operations.stream().anyMatch(operation -> operation == null || operation.getAction() == null
+        || operation.getQuantity() <= 0)) {
+      logger.error("Can not modify cart. Operation without action or with invalid quantity");
+      return ResponseEntity.badRequest().build();
     }
-    Cart cart = user.getCart();
-    IntStream.range(0, request.getQuantity())
-        .forEach(i -> cart.removeItem(item.get()));
+    Map<Long, Item> items = new HashMap<>();
+    itemRepository.findAllById(operations.stream().map(CartOperation::getItemId).collect(Collectors.toSet()))
+        .forEach(item -> items.put(item.getId(), item));
 
-    logger.info("Item {} successfully removed from cart", item.get().getName());
-    return ResponseEntity.ok(cartRepository.save(cart));
+    return cartLocks.withLock(request.getUsername(), () -> {
+      List<CartOperationResult> results = new ArrayList<>(operations.size());
+      CartView cart = cartStore.change(request.getUsername(), findCartId(principal, request.getUsername()), changed -> {
+        for (CartOperation operation : operations) {
+          Item item = items.get(operation.getItemId());
+          if (item == null) {
+            results.add(new CartOperationResult(operation.getItemId(), HttpStatus.NOT_FOUND.value()));
+            continue;
+          }
+          if (operation.getAction() == CartOperation.Action.ADD) {
+            try {
+              changed.addItem(item, operation.getQuantity());
+            } catch (IllegalArgumentException e) {
+              results.add(new CartOperationResult(operation.getItemId(), HttpStatus.BAD_REQUEST.value()));
+              continue;
+            }
+          } else {
+            changed.removeItem(item, operation.getQuantity());
+          }
+          results.add(new CartOperationResult(operation.getItemId(), HttpStatus.OK.value()));
+        }
+      });
+      if (cart == null) {
+        logger.error("Not found user with username: {}", request.getUsername());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+      }
+
+      long applied = results.stream().filter(result -> result.getStatus() == HttpStatus.OK.value()).count();
+      logger.info("Applied {} of {} cart operations for user {}", applied, results.size(), request.getUsername());
+      return ResponseEntity.ok(new CartBatchView(cart, results));
+    });
   }
 
+  private Long findCartId(AuthenticatedUser principal, String username) {
+    return principal != null && principal.isUser(username) ? principal.getCartId() : null;
+  }
 }
@@ -6,14 +6,25 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.demo.constant.AppConstant;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.support.CatalogVersion;
+import com.example.demo.support.ItemSearchIndex;
 
 @RestController
 @RequestMapping("/api/item")
@@ -23,10 +34,33 @@ public class ItemController {
   @Autowired
   private ItemRepository itemRepository;
 
+  @Autowired
+  private CatalogVersion catalogVersion;
+
+  @Autowired
+  private ItemSearchIndex itemSearchIndex;
+
   @GetMapping
-  public ResponseEntity<List<Item>> getItems() {
-    logger.info("Retrieving all items");
-    return ResponseEntity.ok(itemRepository.findAll());
+  public ResponseEntity<List<Item>> getItems(@PageableDefault(size = AppConstant.DEFAULT_PAGE_SIZE, sort = "id") Pageable pageable,
+                                             WebRequest request) {
+    // The version is read before the query, a change committed in between only costs one extra refresh
+    String eTag = catalogVersion.getETag();
+    if (request.checkNotModified(eTag)) {
+      return null;
+    }
+    Page<Item> items;
+    try {
+      items = itemRepository.findAll(pageable);
+    } catch (PropertyReferenceException e) {
+      logger.error("Can not retrieve items. {}", e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+    logger.info("Retrieving {} items of page {}", items.getNumberOfElements(), pageable.getPageNumber());
+    return ResponseEntity.ok()
+        .eTag(eTag)
+        .cacheControl(CacheControl.noCache())
+        .header(AppConstant.TOTAL_COUNT_HEADER, String.valueOf(items.getTotalElements()))
+        .body(items.getContent());
   }
 
   @GetMapping("/{id}")
@@ -51,4 +85,16 @@ public class ItemController {
     return ResponseEntity.ok(items);
   }
 
+  @GetMapping("/search")
+  public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+                                                @RequestParam(defaultValue = "" + AppConstant.DEFAULT_SEARCH_LIMIT) int limit) {
+    if (!StringUtils.hasText(query) || limit < 1) {
+      logger.error("Can not search items. Invalid query: {} or limit: {}", query, limit);
+      return ResponseEntity.badRequest().build();
+    }
+    List<Item> items = itemSearchIndex.search(query, Math.min(limit, AppConstant.MAX_PAGE_SIZE));
+    logger.info("Search for {} found {} items", query, items.size());
+    return ResponseEntity.ok(items);
+  }
+
 }
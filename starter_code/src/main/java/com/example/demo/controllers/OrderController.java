@@ -1,21 +1,41 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.CartStore;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderSubmissionService;
+import com.example.demo.support.CartLocks;
+import com.example.demo.support.IdempotencyCache;
+import com.example.demo.support.KeysetCursor;
 
 @RestController
 @RequestMapping("/api/order")
@@ -26,30 +46,163 @@ public class OrderController {
   private UserRepository userRepository;
 
   @Autowired
-  private OrderRepository orderRepository;
+  private CartRepository cartRepository;
+
+  @Autowired
+  private OrderService orderService;
+
+  @Autowired
+  private CartStore cartStore;
+
+  @Autowired
+  private CartLocks cartLocks;
+
+  @Autowired
+  private IdempotencyCache idempotencyCache;
+
+  // Only present when orders are submitted asynchronously
+  @Autowired(required = false)
+  private OrderSubmissionService orderSubmissionService;
 
   @PostMapping("/submit/{username}")
-  public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-    User user = userRepository.findByUsername(username);
-    if (user == null) {
+  public ResponseEntity<?> submit(@PathVariable String username,
+                                  @RequestHeader(value = AppConstant.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                  @AuthenticationPrincipal AuthenticatedUser principal) {
+    if (idempotencyKey == null) {
+      return submitOrder(username, principal);
+    }
+    if (idempotencyKey.isEmpty() || idempotencyKey.length() > AppConstant.MAX_IDEMPOTENCY_KEY_LENGTH) {
+      logger.error("Can not submit order. Invalid idempotency key of user {}", username);
+      return ResponseEntity.badRequest().build();
+    }
+    // Keys are scoped per user, a retry is answered with the first response instead of a second order
+    return idempotencyCache.execute(username + ':' + idempotencyKey, () -> submitOrder(username, principal));
+  }
+
+  private ResponseEntity<?> submitOrder(String username, AuthenticatedUser principal) {
+    if (orderSubmissionService != null) {
+      return submitAsync(username, principal);
+    }
+    // Same lock as the cart endpoints, an item added while the cart is checked out is either ordered or kept
+    return cartLocks.withLock(username, () -> {
+      cartStore.flush(username);
+      Cart cart = principal != null && principal.isUser(username) && principal.getCartId() != null
+          ? cartRepository.findWithLinesById(principal.getCartId())
+          : cartRepository.findWithLinesByUsername(username);
+      if (cart == null) {
+        logger.error("Can not submit order. Not found user with username: {}", username);
+        return ResponseEntity.notFound().build();
+      }
+      if (cart.getLines().isEmpty()) {
+        logger.error("Can not submit order. Cart of user {} is empty", username);
+        return ResponseEntity.badRequest().build();
+      }
+      UserOrder orderSubmitted = orderService.checkout(cart.getUser());
+      cartStore.evict(username);
+      logger.info("Order id {} has been submitted", orderSubmitted.getId());
+      return ResponseEntity.ok(OrderView.from(orderSubmitted));
+    });
+  }
+
+  /**
+   * Queues the order and answers 202 with the URL of its status, 503 when the queue is full or 409 while an
+   * earlier order of the user is still being written.
+   */
+  private ResponseEntity<OrderSubmissionView> submitAsync(String username, AuthenticatedUser principal) {
+    Long userId = findUserId(principal, username);
+    if (userId == null) {
       logger.error("Can not submit order. Not found user with username: {}", username);
       return ResponseEntity.notFound().build();
     }
-    UserOrder order = UserOrder.createFromCart(user.getCart());
-    UserOrder orderSubmitted = orderRepository.save(order);
-    logger.info("Order id {} has been submitted", orderSubmitted.getId());
-    return ResponseEntity.ok(orderSubmitted);
+    Long cartId = principal != null && principal.isUser(username) ? principal.getCartId() : null;
+    OrderSubmissionView submission;
+    try {
+      submission = cartLocks.withLock(username, () -> orderSubmissionService.submit(username, userId, cartId));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Can not submit order of user {}, order queue is full", username);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+    } catch (IllegalStateException e) {
+      logger.warn("Can not submit order of user {}, an earlier order is still being written", username);
+      return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").build();
+    }
+    if (submission == null) {
+      logger.error("Can not submit order. Cart of user {} is empty", username);
+      return ResponseEntity.badRequest().build();
+    }
+    logger.info("Order submission {} of user {} has been queued", submission.getId(), username);
+    return ResponseEntity.accepted()
+        .location(URI.create("/api/order/submission/" + submission.getId()))
+        .body(submission);
+  }
+
+  @GetMapping("/submission/{id}")
+  public ResponseEntity<OrderSubmissionView> getSubmission(@PathVariable long id,
+                                                           @AuthenticationPrincipal AuthenticatedUser principal) {
+    // Order ids are sequential, only the user who submitted sees the status
+    OrderSubmissionView submission = orderSubmissionService == null || principal == null
+        ? null : orderSubmissionService.find(id, principal.getUsername());
+    if (submission == null) {
+      logger.error("Not found order submission with id: {}", id);
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(submission);
   }
 
   @GetMapping("/history/{username}")
-  public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-    User user = userRepository.findByUsername(username);
-    if (user == null) {
+  public ResponseEntity<List<OrderView>> getOrdersForUser(@PathVariable String username,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "" + AppConstant.DEFAULT_PAGE_SIZE) int size,
+                                                          @AuthenticationPrincipal AuthenticatedUser principal) {
+    if (size < 1) {
+      logger.error("Can not retrieve order history. Invalid page size: {}", size);
+      return ResponseEntity.badRequest().build();
+    }
+    long afterId;
+    try {
+      afterId = cursor == null ? 0L : KeysetCursor.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      logger.error("Can not retrieve order history. {}", e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+    Long userId = findUserId(principal, username);
+    if (userId == null) {
       logger.error("Can not retrieve order history. Not found user with username: {}", username);
       return ResponseEntity.notFound().build();
     }
-    List<UserOrder> orderList = orderRepository.findByUser(user);
+    int pageSize = Math.min(size, AppConstant.MAX_PAGE_SIZE);
+    // One extra order tells whether there is a next page without a count query
+    List<OrderView> orderList = orderService.findHistory(userId, afterId, pageSize + 1);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (orderList.size() > pageSize) {
+      orderList = orderList.subList(0, pageSize);
+      response.header(AppConstant.NEXT_CURSOR_HEADER, KeysetCursor.encode(orderList.get(pageSize - 1).getId()));
+    }
     logger.info("Retrieving {} orders of user {} was found", orderList.size(), username);
-    return ResponseEntity.ok(orderList);
+    return response.body(orderList);
+  }
+
+  @GetMapping("/export/{username}")
+  public void exportOrdersForUser(@PathVariable String username, @AuthenticationPrincipal AuthenticatedUser principal,
+                                  HttpServletResponse response) throws IOException {
+    Long userId = findUserId(principal, username);
+    if (userId == null) {
+      logger.error("Can not export order history. Not found user with username: {}", username);
+      response.setStatus(HttpStatus.NOT_FOUND.value());
+      return;
+    }
+    response.setContentType(AppConstant.NDJSON_VALUE);
+    long count = orderService.exportOrders(userId, response.getOutputStream());
+    logger.info("Exported {} orders of user {}", count, username);
+  }
+
+  /**
+   * The caller's own id comes from the token, anyone else's needs a lookup.
+   */
+  private Long findUserId(AuthenticatedUser principal, String username) {
+    if (principal != null && principal.isUser(username)) {
+      return principal.getUserId();
+    }
+    User user = userRepository.findByUsername(username);
+    return user == null ? null : user.getId();
   }
 }
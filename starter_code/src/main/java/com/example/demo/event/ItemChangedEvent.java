@@ -0,0 +1,25 @@
+package com.example.demo.event;
+
+import com.example.demo.model.persistence.Item;
+
+public class ItemChangedEvent {
+  public enum Type {
+    CREATED, UPDATED, DELETED
+  }
+
+  private final Item item;
+  private final Type type;
+
+  public ItemChangedEvent(Item item, Type type) {
+    this.item = item;
+    this.type = type;
+  }
+
+  public Item getItem() {
+    return item;
+  }
+
+  public Type getType() {
+    return type;
+  }
+}
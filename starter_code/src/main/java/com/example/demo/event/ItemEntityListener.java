@@ -0,0 +1,35 @@
+package com.example.demo.event;
+
+import com.example.demo.model.persistence.Item;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Publishes an {@link ItemChangedEvent} for every item written through JPA. Hibernate creates it through
+ * the Spring bean container, so it can take Spring dependencies.
+ */
+public class ItemEntityListener {
+  private final ApplicationEventPublisher eventPublisher;
+
+  public ItemEntityListener(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  @PostPersist
+  public void onPersist(Item item) {
+    eventPublisher.publishEvent(new ItemChangedEvent(item, ItemChangedEvent.Type.CREATED));
+  }
+
+  @PostUpdate
+  public void onUpdate(Item item) {
+    eventPublisher.publishEvent(new ItemChangedEvent(item, ItemChangedEvent.Type.UPDATED));
+  }
+
+  @PostRemove
+  public void onRemove(Item item) {
+    eventPublisher.publishEvent(new ItemChangedEvent(item, ItemChangedEvent.Type.DELETED));
+  }
+}
@@ -2,20 +2,21 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+import com.example.demo.constant.AppConstant;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -28,10 +29,9 @@ public class Cart {
 	@Column
 	private Long id;
 	
-	@ManyToMany
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<CartLine> lines = new ArrayList<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
@@ -65,33 +65,103 @@ public class Cart {
 		this.id = id;
 	}
 
+	public List<CartLine> getLines() {
+		return lines;
+	}
+
+	public void setLines(List<CartLine> lines) {
+		this.lines = lines;
+	}
+
+	/**
+	 * One entry per unit, as exposed before carts were stored as quantity lines. No longer serialized, a line of
+	 * n units would turn into n entries: read {@link #getLines()} instead.
+	 */
+	@Deprecated
+	@JsonIgnore
 	public List<Item> getItems() {
-		return items;
+		List<Item> items = new ArrayList<>();
+		for (CartLine line : lines) {
+			items.addAll(Collections.nCopies(line.getQuantity(), line.getItem()));
+		}
+		return Collections.unmodifiableList(items);
 	}
 
+	@Deprecated
 	public void setItems(List<Item> items) {
-		this.items = items;
+		lines.clear();
+		total = BigDecimal.ZERO;
+		if (items != null) {
+			items.forEach(this::addItem);
+		}
 	}
 	
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the quantity is not positive or the line would exceed
+	 *         {@link AppConstant#MAX_CART_LINE_QUANTITY}, the cart is left unchanged
+	 */
+	public void addItem(Item item, int quantity) {
+		if (quantity <= 0) {
+			throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+		}
+		CartLine line = findLine(item);
+		if (quantity > AppConstant.MAX_CART_LINE_QUANTITY - (line == null ? 0 : line.getQuantity())) {
+			throw new IllegalArgumentException("Quantity of item " + item.getId() + " would exceed "
+					+ AppConstant.MAX_CART_LINE_QUANTITY);
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		if (line == null) {
+			line = new CartLine(this, item);
+			lines.add(line);
 		}
-		total = total.add(item.getPrice());
+		BigDecimal previousLineTotal = line.getLineTotal();
+		line.setQuantity(line.getQuantity() + quantity);
+		total = getTotalOrZero().subtract(previousLineTotal).add(line.getLineTotal());
 	}
 	
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the quantity is not positive
+	 */
+	public void removeItem(Item item, int quantity) {
+		if (quantity <= 0) {
+			throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+		}
+		CartLine line = findLine(item);
+		if (line == null) {
+			return;
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		BigDecimal previousLineTotal = line.getLineTotal();
+		if (quantity >= line.getQuantity()) {
+			lines.remove(line);
+			total = getTotalOrZero().subtract(previousLineTotal);
+			return;
+		}
+		line.setQuantity(line.getQuantity() - quantity);
+		total = getTotalOrZero().subtract(previousLineTotal).add(line.getLineTotal());
+	}
+
+	public void clear() {
+		lines.clear();
+		total = BigDecimal.ZERO;
+	}
+
+	private CartLine findLine(Item item) {
+		for (CartLine line : lines) {
+			if (line.getItem().equals(item)) {
+				return line;
+			}
 		}
-		total = total.subtract(item.getPrice());
+		return null;
+	}
+
+	private BigDecimal getTotalOrZero() {
+		return total == null ? BigDecimal.ZERO : total;
 	}
 }
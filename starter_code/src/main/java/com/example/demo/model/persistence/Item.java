@@ -4,18 +4,28 @@ import java.math.BigDecimal;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.event.ItemEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "item")
+@Table(name = "item", indexes = @Index(name = "idx_item_name", columnList = "name"))
+@EntityListeners(ItemEntityListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AppConstant.ITEM_CACHE_REGION)
 public class Item {
 
 	@Id
@@ -34,6 +44,16 @@ public class Item {
 	@Column(nullable = false)
 	@JsonProperty
 	private String description;
+
+	// Counts the updates of the item, rows inserted by data.sql start without one
+	@Column
+	@JsonIgnore
+	private Long revision;
+
+	@PreUpdate
+	void nextRevision() {
+		revision = revision == null ? 1 : revision + 1;
+	}
 	
 	@Override
 	public int hashCode() {
@@ -91,6 +111,10 @@ public class Item {
 	public void setDescription(String description) {
 		this.description = description;
 	}
+
+	public Long getRevision() {
+		return revision;
+	}
 	
 	
 	
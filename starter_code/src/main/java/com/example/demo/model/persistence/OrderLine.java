@@ -0,0 +1,49 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false, updatable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private BigDecimal unitPrice;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private int quantity;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(Long itemId, BigDecimal unitPrice, int quantity) {
+		this.itemId = itemId;
+		this.unitPrice = unitPrice;
+		this.quantity = quantity;
+	}
+
+	public static OrderLine from(CartLine line) {
+		return new OrderLine(line.getItem().getId(), line.getItem().getPrice(), line.getQuantity());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
@@ -3,6 +3,7 @@ package com.example.demo.model.persistence;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -10,12 +11,19 @@ import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import com.example.demo.constant.AppConstant;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-
 @Entity
 @Table(name = "user")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AppConstant.USER_CACHE_REGION)
+@NaturalIdCache(region = AppConstant.USER_NATURAL_ID_CACHE_REGION)
 public class User {
 
   @Id
@@ -23,6 +31,7 @@ public class User {
   @JsonProperty
   private long id;
 
+  @NaturalId
   @Column(nullable = false, unique = true)
   @JsonProperty
   private String username;
@@ -31,7 +40,7 @@ public class User {
   @JsonIgnore
   private String password;
 
-  @OneToOne(cascade = CascadeType.ALL)
+  @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
   @JoinColumn(name = "cart_id", referencedColumnName = "id")
   @JsonIgnore
   private Cart cart;
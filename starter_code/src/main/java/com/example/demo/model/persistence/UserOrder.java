@@ -4,36 +4,54 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import com.example.demo.support.ReservableSequenceGenerator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "user_order")
-public class UserOrder {
+@Table(name = "user_order", indexes = @Index(name = "idx_user_order_user_id", columnList = "user_id, id"))
+public class UserOrder implements ReservableSequenceGenerator.Reservable {
 
+	// A sequence rather than an identity column, so an id can be reserved before the order is written
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "user_order_id")
+	@GenericGenerator(name = "user_order_id", strategy = "com.example.demo.support.ReservableSequenceGenerator",
+			parameters = {
+					@Parameter(name = "sequence_name", value = "user_order_seq"),
+					@Parameter(name = "increment_size", value = "50")
+			})
 	@JsonProperty
 	@Column
 	private Long id;
+
+	@Transient
+	@JsonIgnore
+	private Long reservedId;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	@ElementCollection
+	@BatchSize(size = 100)
+	@CollectionTable(name = "user_order_line", joinColumns = @JoinColumn(name = "order_id"))
 	@JsonProperty
-	@Column
-    private List<Item> items;
+    private List<OrderLine> lines;
 	
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
 	@JsonProperty
     private User user;
@@ -50,12 +68,21 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	@Override
+	public Long getReservedId() {
+		return reservedId;
+	}
+
+	public void setReservedId(Long reservedId) {
+		this.reservedId = reservedId;
+	}
+
+	public List<OrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
 	}
 
 	public User getUser() {
@@ -76,7 +103,7 @@ public class UserOrder {
 
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
+		order.setLines(cart.getLines().stream().map(OrderLine::from).collect(Collectors.toList()));
 		order.setTotal(cart.getTotal());
 		order.setUser(cart.getUser());
 		return order;
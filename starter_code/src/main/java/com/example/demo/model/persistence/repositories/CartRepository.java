@@ -1,6 +1,14 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
@@ -10,4 +18,22 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * Loads the cart of a user together with the user, the lines and their items in one statement.
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	@Query("select distinct c from Cart c join fetch c.user u left join fetch c.lines l left join fetch l.item "
+			+ "where u.username = :username")
+	Cart findWithLinesByUsername(@Param("username") String username);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	@Query("select distinct c from Cart c join fetch c.user left join fetch c.lines l left join fetch l.item "
+			+ "where c.id = :id")
+	Cart findWithLinesById(@Param("id") Long id);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	@Query("select distinct c from Cart c join fetch c.user left join fetch c.lines l left join fetch l.item "
+			+ "where c.id in :ids")
+	List<Cart> findAllWithLinesByIdIn(@Param("ids") Collection<Long> ids);
 }
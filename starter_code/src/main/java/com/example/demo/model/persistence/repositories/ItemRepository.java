@@ -3,6 +3,7 @@ package com.example.demo.model.persistence.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.Item;
 import org.springframework.stereotype.Repository;
@@ -11,4 +12,19 @@ import org.springframework.stereotype.Repository;
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	List<Item> findByName(String name);
 
+	/**
+	 * Changes with every insert, update and delete of an item: inserts raise the highest id, updates the sum of
+	 * the revisions and deletes the count.
+	 */
+	@Query("select count(i) as count, coalesce(max(i.id), 0) as maxId, coalesce(sum(i.revision), 0) as revisions "
+			+ "from Item i")
+	CatalogState findCatalogState();
+
+	interface CatalogState {
+		Long getCount();
+
+		Long getMaxId();
+
+		Long getRevisions();
+	}
 }
@@ -0,0 +1,18 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.math.BigDecimal;
+
+/**
+ * One order line joined with its order, as read by {@link OrderRepository#findHistoryRows}.
+ */
+public interface OrderLineRow {
+	Long getOrderId();
+
+	BigDecimal getTotal();
+
+	Long getItemId();
+
+	BigDecimal getUnitPrice();
+
+	Integer getQuantity();
+}
@@ -1,9 +1,16 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.constant.AppConstant;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import org.springframework.stereotype.Repository;
@@ -11,4 +18,20 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	/**
+	 * One page of a user's orders after the keyset cursor, with their lines, in a single statement. The limit
+	 * applies to orders in the derived table, so an order's lines are never cut across pages.
+	 */
+	@Query(value = "select o.id as orderId, o.total as total, l.item_id as itemId, l.unit_price as unitPrice, "
+			+ "l.quantity as quantity "
+			+ "from (select id, total from user_order where user_id = :userId and id > :afterId order by id limit :limit) o "
+			+ "left join user_order_line l on l.order_id = o.id "
+			+ "order by o.id", nativeQuery = true)
+	List<OrderLineRow> findHistoryRows(@Param("userId") long userId, @Param("afterId") long afterId,
+			@Param("limit") int limit);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + AppConstant.EXPORT_FETCH_SIZE))
+	@Query("select o from UserOrder o left join fetch o.lines where o.user.id = :userId order by o.id")
+	Stream<UserOrder> streamByUserId(@Param("userId") long userId);
 }
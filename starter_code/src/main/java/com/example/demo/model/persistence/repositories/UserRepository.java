@@ -1,13 +1,21 @@
 package com.example.demo.model.persistence.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-  User findByUsername(String username);
-
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
   boolean existsByUsername(String username);
+
+  @Transactional
+  @Modifying
+  @Query("update User u set u.password = :newPassword where u.id = :id and u.password = :oldPassword")
+  int updatePassword(@Param("id") long id, @Param("oldPassword") String oldPassword,
+                     @Param("newPassword") String newPassword);
 }
@@ -0,0 +1,7 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.User;
+
+public interface UserRepositoryCustom {
+  User findByUsername(String username);
+}
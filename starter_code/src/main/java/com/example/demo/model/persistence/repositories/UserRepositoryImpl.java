@@ -0,0 +1,28 @@
+package com.example.demo.model.persistence.repositories;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.persistence.User;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Resolves the user through the natural-id and entity caches, a derived query would always go to the
+   * database. SUPPORTS keeps a session open for the lookup without starting a database transaction.
+   */
+  @Override
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public User findByUsername(String username) {
+    if (username == null) {
+      return null;
+    }
+    return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(username);
+  }
+}
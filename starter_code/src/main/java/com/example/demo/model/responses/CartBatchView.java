@@ -0,0 +1,27 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartBatchView {
+
+	@JsonProperty
+	private final CartView cart;
+
+	@JsonProperty
+	private final List<CartOperationResult> results;
+
+	public CartBatchView(CartView cart, List<CartOperationResult> results) {
+		this.cart = cart;
+		this.results = results;
+	}
+
+	public CartView getCart() {
+		return cart;
+	}
+
+	public List<CartOperationResult> getResults() {
+		return results;
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.CartLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartLineView {
+
+	@JsonProperty
+	private final Long itemId;
+
+	@JsonProperty
+	private final String itemName;
+
+	@JsonProperty
+	private final BigDecimal unitPrice;
+
+	@JsonProperty
+	private final int quantity;
+
+	@JsonProperty
+	private final BigDecimal lineTotal;
+
+	public CartLineView(Long itemId, String itemName, BigDecimal unitPrice, int quantity, BigDecimal lineTotal) {
+		this.itemId = itemId;
+		this.itemName = itemName;
+		this.unitPrice = unitPrice;
+		this.quantity = quantity;
+		this.lineTotal = lineTotal;
+	}
+
+	public static CartLineView from(CartLine line) {
+		return new CartLineView(line.getItem().getId(), line.getItem().getName(), line.getItem().getPrice(),
+				line.getQuantity(), line.getLineTotal());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public BigDecimal getLineTotal() {
+		return lineTotal;
+	}
+}
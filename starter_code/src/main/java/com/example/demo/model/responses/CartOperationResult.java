@@ -0,0 +1,28 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one operation of a batch, with the status the single item endpoint would have answered.
+ */
+public class CartOperationResult {
+
+	@JsonProperty
+	private final long itemId;
+
+	@JsonProperty
+	private final int status;
+
+	public CartOperationResult(long itemId, int status) {
+		this.itemId = itemId;
+		this.status = status;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.demo.model.persistence.Cart;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What the cart endpoints return: the lines with the item columns a client shows, without the owner or the
+ * item descriptions.
+ */
+public class CartView {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final BigDecimal total;
+
+	@JsonProperty
+	private final List<CartLineView> lines;
+
+	public CartView(Long id, BigDecimal total, List<CartLineView> lines) {
+		this.id = id;
+		this.total = total;
+		this.lines = lines;
+	}
+
+	public static CartView from(Cart cart) {
+		return new CartView(cart.getId(), cart.getTotal(),
+				cart.getLines().stream().map(CartLineView::from).collect(Collectors.toList()));
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public List<CartLineView> getLines() {
+		return lines;
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.OrderLine;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderLineView {
+
+	@JsonProperty
+	private final Long itemId;
+
+	@JsonProperty
+	private final BigDecimal unitPrice;
+
+	@JsonProperty
+	private final int quantity;
+
+	public OrderLineView(Long itemId, BigDecimal unitPrice, int quantity) {
+		this.itemId = itemId;
+		this.unitPrice = unitPrice;
+		this.quantity = quantity;
+	}
+
+	public static OrderLineView from(OrderLine line) {
+		return new OrderLineView(line.getItemId(), line.getUnitPrice(), line.getQuantity());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
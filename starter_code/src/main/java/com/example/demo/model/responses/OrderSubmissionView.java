@@ -0,0 +1,41 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * State of an order submitted asynchronously. The id is the order id reserved on submission, the order id is
+ * only set once the order has been written under it.
+ */
+public class OrderSubmissionView {
+
+	public enum Status {
+		QUEUED, COMPLETED, FAILED
+	}
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final Status status;
+
+	@JsonProperty
+	private final Long orderId;
+
+	public OrderSubmissionView(Long id, Status status, Long orderId) {
+		this.id = id;
+		this.status = status;
+		this.orderId = orderId;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderLineRow;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What the order endpoints return. The owner is implied by the request, so only the order and its lines are
+ * exposed.
+ */
+public class OrderView {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final BigDecimal total;
+
+	@JsonProperty
+	private final List<OrderLineView> lines;
+
+	public OrderView(Long id, BigDecimal total, List<OrderLineView> lines) {
+		this.id = id;
+		this.total = total;
+		this.lines = lines;
+	}
+
+	public static OrderView from(UserOrder order) {
+		return new OrderView(order.getId(), order.getTotal(),
+				order.getLines().stream().map(OrderLineView::from).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Folds flat order/line rows, sorted by order id, back into one view per order. An order without lines comes
+	 * as a single row with a null item.
+	 */
+	public static List<OrderView> fromRows(List<OrderLineRow> rows) {
+		List<OrderView> orders = new ArrayList<>();
+		OrderView current = null;
+		for (OrderLineRow row : rows) {
+			if (current == null || !current.id.equals(row.getOrderId())) {
+				current = new OrderView(row.getOrderId(), row.getTotal(), new ArrayList<>());
+				orders.add(current);
+			}
+			if (row.getItemId() != null) {
+				current.lines.add(new OrderLineView(row.getItemId(), row.getUnitPrice(), row.getQuantity()));
+			}
+		}
+		return orders;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public List<OrderLineView> getLines() {
+		return lines;
+	}
+}
@@ -1,8 +1,10 @@
 package com.example.demo.security.filter;
 
-import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.demo.constant.AppConstant;
-import com.example.demo.security.support.KeyUtil;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.security.support.VerifiedTokenCache;
+import com.example.demo.service.TokenService;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,13 +18,16 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
 @Component
 public class JwtAuthenticationFilter extends BasicAuthenticationFilter {
+  private final TokenService tokenService;
+  private final VerifiedTokenCache verifiedTokenCache;
 
-  public JwtAuthenticationFilter(AuthenticationManager authenticationManager) {
+  public JwtAuthenticationFilter(AuthenticationManager authenticationManager, TokenService tokenService,
+                                 VerifiedTokenCache verifiedTokenCache) {
     super(authenticationManager);
+    this.tokenService = tokenService;
+    this.verifiedTokenCache = verifiedTokenCache;
   }
 
   @Override
@@ -42,12 +47,9 @@ public class JwtAuthenticationFilter extends BasicAuthenticationFilter {
 
   private UsernamePasswordAuthenticationToken getAuthenticationToken(String authHeader) {
     String token = authHeader.replace(AppConstant.BEARER_HEADER, "");
-    // Todo: Replace with RSA512 and public, private key
-    String user = JWT.require(HMAC512(KeyUtil.getSecretKey())).build()
-        .verify(token)
-        .getSubject();
-    if (user != null) {
-      return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
+    DecodedJWT jwt = verifiedTokenCache.verify(token, tokenService::verify);
+    if (jwt.getSubject() != null) {
+      return new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(jwt), null, new ArrayList<>());
     }
     return null;
   }
@@ -1,56 +1,181 @@
 package com.example.demo.security.filter;
 
-import com.auth0.jwt.JWT;
 import com.example.demo.constant.AppConstant;
 import com.example.demo.model.requests.LoginRequest;
-import com.example.demo.security.support.KeyUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.demo.security.support.AccountUserDetails;
+import com.example.demo.security.support.PasswordHashingExecutor;
+import com.example.demo.service.PasswordRehashService;
+import com.example.demo.service.TokenService;
+import com.example.demo.support.JsonCodec;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.time.Instant;
 import java.util.ArrayList;
-
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class JwtAuthenticationProcessingFilter extends UsernamePasswordAuthenticationFilter {
   private final AuthenticationManager authManager;
+  private final TokenService tokenService;
+  private final PasswordHashingExecutor hashingExecutor;
+  private final PasswordRehashService passwordRehashService;
+  private final JsonCodec jsonCodec;
+  private final long asyncTimeout;
 
-  public JwtAuthenticationProcessingFilter(AuthenticationManager authenticationManager) {
+  public JwtAuthenticationProcessingFilter(AuthenticationManager authenticationManager, TokenService tokenService,
+                                           PasswordHashingExecutor hashingExecutor,
+                                           PasswordRehashService passwordRehashService, JsonCodec jsonCodec,
+                                           long asyncTimeout) {
     this.authManager = authenticationManager;
+    this.tokenService = tokenService;
+    this.hashingExecutor = hashingExecutor;
+    this.passwordRehashService = passwordRehashService;
+    this.jsonCodec = jsonCodec;
+    this.asyncTimeout = asyncTimeout;
   }
 
   @Override
-  public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+  public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) req;
+    HttpServletResponse response = (HttpServletResponse) res;
+    if (!requiresAuthentication(request, response) || !request.isAsyncSupported()) {
+      super.doFilter(req, res, chain);
+      return;
+    }
+
+    Authentication authRequest;
     try {
-      LoginRequest credentials = new ObjectMapper()
-          .readValue(request.getInputStream(), LoginRequest.class);
-
-      return authManager.authenticate(
-          new UsernamePasswordAuthenticationToken(
-              credentials.getUsername(),
-              credentials.getPassword(),
-              new ArrayList<>()));
-    } catch (IOException e) {
-      throw new BadCredentialsException(e.getMessage(), e);
+      authRequest = readCredentials(request);
+    } catch (AuthenticationException e) {
+      unsuccessfulAuthentication(request, response, e);
+      return;
+    }
+
+    // Password hashing runs on the bounded hashing pool so the request thread is released right away
+    AsyncContext asyncContext = request.startAsync(request, response);
+    asyncContext.setTimeout(asyncTimeout);
+    AtomicBoolean completed = new AtomicBoolean();
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) {
+        if (completed.compareAndSet(false, true)) {
+          logger.warn("Login timed out while waiting for password hashing");
+          response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+          asyncContext.complete();
+        }
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {
+      }
+
+      @Override
+      public void onError(AsyncEvent event) {
+        // E.g. the client went away, the hashing task must no longer touch the response
+        if (completed.compareAndSet(false, true)) {
+          logger.warn("Login failed while waiting for password hashing", event.getThrowable());
+          asyncContext.complete();
+        }
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {
+      }
+    });
+
+    try {
+      hashingExecutor.execute(() -> {
+        try {
+          processAuthentication(request, response, authRequest, completed);
+        } finally {
+          if (completed.compareAndSet(false, true)) {
+            asyncContext.complete();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      logger.warn("Login rejected, password hashing queue is full");
+      if (completed.compareAndSet(false, true)) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        asyncContext.complete();
+      }
     }
   }
 
+  @Override
+  public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+    return authenticate(readCredentials(request));
+  }
+
   @Override
   protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Authentication authResult) throws IOException, ServletException {
-    String token = JWT.create()
-        .withSubject(((org.springframework.security.core.userdetails.User) authResult.getPrincipal()).getUsername())
-        .withExpiresAt(Instant.now().plusMillis(AppConstant.TOKEN_EXPIRATION_TIME))
-        .sign(HMAC512(KeyUtil.getSecretKey().getBytes()));
+    String token = tokenService.createToken(((AccountUserDetails) authResult.getPrincipal()).toAuthenticatedUser());
     response.addHeader(AppConstant.AUTHORIZATION_HEADER, AppConstant.BEARER_HEADER + token);
   }
+
+  private void processAuthentication(HttpServletRequest request, HttpServletResponse response,
+                                     Authentication authRequest, AtomicBoolean completed) {
+    try {
+      Authentication authResult = authenticate(authRequest);
+      if (!completed.get()) {
+        successfulAuthentication(request, response, null, authResult);
+      }
+    } catch (AuthenticationException e) {
+      if (!completed.get()) {
+        try {
+          unsuccessfulAuthentication(request, response, e);
+        } catch (IOException | ServletException ex) {
+          logger.error("Can not write login failure response", ex);
+        }
+      }
+    } catch (Exception e) {
+      logger.error("Login failed unexpectedly", e);
+      if (!completed.get()) {
+        response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+      }
+    }
+  }
+
+  private Authentication authenticate(Authentication authRequest) {
+    Authentication authResult = authManager.authenticate(authRequest);
+    AccountUserDetails user = (AccountUserDetails) authResult.getPrincipal();
+    // The raw password is only available right now, hashes stored with an outdated cost are upgraded in the background
+    passwordRehashService.rehashIfNeeded(user.getUserId(), user.getUsername(), user.getPassword(),
+        (String) authRequest.getCredentials());
+    // The authentication manager keeps the stored hash for the check above, see WebSecurityConfig
+    if (authResult instanceof CredentialsContainer) {
+      ((CredentialsContainer) authResult).eraseCredentials();
+    }
+    return authResult;
+  }
+
+  private UsernamePasswordAuthenticationToken readCredentials(HttpServletRequest request) {
+    try {
+      LoginRequest credentials = jsonCodec.read(request.getInputStream(), LoginRequest.class);
+
+      return new UsernamePasswordAuthenticationToken(
+          credentials.getUsername(),
+          credentials.getPassword(),
+          new ArrayList<>());
+    } catch (IOException e) {
+      throw new BadCredentialsException(e.getMessage(), e);
+    }
+  }
 }
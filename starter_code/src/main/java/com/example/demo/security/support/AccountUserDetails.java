@@ -0,0 +1,27 @@
+package com.example.demo.security.support;
+
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * User details that keep the ids of the account, so the token issued at login can carry them.
+ */
+public class AccountUserDetails extends User {
+  private final long userId;
+  private final Long cartId;
+
+  public AccountUserDetails(String username, String password, long userId, Long cartId) {
+    super(username, password, Collections.emptyList());
+    this.userId = userId;
+    this.cartId = cartId;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public AuthenticatedUser toAuthenticatedUser() {
+    return new AuthenticatedUser(getUsername(), userId, cartId);
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.security.support;
+
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.constant.AppConstant;
+
+/**
+ * Principal of a token authenticated request. Tokens carry the user and cart ids next to the username so
+ * handlers can go to the user's rows by primary key. Tokens issued before the ids were added only have the
+ * username, then the ids are null.
+ */
+public class AuthenticatedUser {
+  private final String username;
+  private final Long userId;
+  private final Long cartId;
+
+  public AuthenticatedUser(String username, Long userId, Long cartId) {
+    this.username = username;
+    this.userId = userId;
+    this.cartId = cartId;
+  }
+
+  public static AuthenticatedUser from(DecodedJWT jwt) {
+    return new AuthenticatedUser(jwt.getSubject(), asLong(jwt.getClaim(AppConstant.USER_ID_CLAIM)),
+        asLong(jwt.getClaim(AppConstant.CART_ID_CLAIM)));
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public Long getCartId() {
+    return cartId;
+  }
+
+  /**
+   * Whether this principal is the given user and its ids can stand in for a lookup by username.
+   */
+  public boolean isUser(String username) {
+    return userId != null && this.username.equals(username);
+  }
+
+  /**
+   * {@link org.springframework.security.core.Authentication#getName()} falls back to this for custom principals.
+   */
+  @Override
+  public String toString() {
+    return username;
+  }
+
+  private static Long asLong(Claim claim) {
+    return claim.isMissing() || claim.isNull() ? null : claim.asLong();
+  }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.security.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder whose strength is either configured or calibrated against a target hash latency on the
+ * current machine. BCrypt hashes carry their cost ({@code $2a$<cost>$...}), which is used to tell whether
+ * a stored hash was produced with a lower strength and should be rehashed.
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+  private static final Logger logger = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+  private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+  private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+  private final int strength;
+
+  public CalibratedBCryptPasswordEncoder(int strength) {
+    super(strength);
+    this.strength = strength;
+  }
+
+  public static CalibratedBCryptPasswordEncoder calibrate(long targetHashMillis, int minStrength, int maxStrength) {
+    // Warm up the JIT so the first measurement is not dominated by interpretation
+    new BCryptPasswordEncoder(minStrength).encode(CALIBRATION_PASSWORD);
+
+    int strength = minStrength;
+    long strengthMillis = 0;
+    for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+      long startedAt = System.nanoTime();
+      new BCryptPasswordEncoder(candidate).encode(CALIBRATION_PASSWORD);
+      long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+      if (elapsedMillis > targetHashMillis && candidate > minStrength) {
+        break;
+      }
+      strength = candidate;
+      strengthMillis = elapsedMillis;
+      // Every extra round doubles the cost, so there is no need to measure a strength that will overshoot
+      if (elapsedMillis * 2 > targetHashMillis) {
+        break;
+      }
+    }
+    logger.info("Calibrated BCrypt strength {} ({} ms per hash, target {} ms)", strength, strengthMillis, targetHashMillis);
+    return new CalibratedBCryptPasswordEncoder(strength);
+  }
+
+  public int getStrength() {
+    return strength;
+  }
+
+  /**
+   * Hashes of a higher cost, e.g. calibrated on a faster node, are kept rather than weakened.
+   */
+  public boolean needsRehash(String encodedPassword) {
+    return costOf(encodedPassword) < strength;
+  }
+
+  public static int costOf(String encodedPassword) {
+    Matcher matcher = BCRYPT_COST.matcher(encodedPassword == null ? "" : encodedPassword);
+    return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+  }
+}
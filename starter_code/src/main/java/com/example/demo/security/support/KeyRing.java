@@ -0,0 +1,66 @@
+package com.example.demo.security.support;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.config.TokenProperties;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signing and verification keys addressed by key id. Tokens are always signed with the active key,
+ * while every key in the ring can still verify tokens it issued, so keys can rotate without downtime.
+ */
+public class KeyRing {
+  private final String activeKeyId;
+  private final Algorithm signingAlgorithm;
+  private final Map<String, JWTVerifier> verifiers;
+
+  public KeyRing(String activeKeyId, Map<String, Algorithm> algorithms) {
+    if (!algorithms.containsKey(activeKeyId)) {
+      throw new IllegalArgumentException("Active key " + activeKeyId + " is not part of the key ring");
+    }
+    Map<String, JWTVerifier> verifiers = new LinkedHashMap<>();
+    algorithms.forEach((keyId, algorithm) -> verifiers.put(keyId, JWT.require(algorithm).build()));
+    this.activeKeyId = activeKeyId;
+    this.signingAlgorithm = algorithms.get(activeKeyId);
+    this.verifiers = Collections.unmodifiableMap(verifiers);
+  }
+
+  public static KeyRing from(TokenProperties properties) {
+    List<TokenProperties.Key> keys = properties.getKeys().isEmpty()
+        ? Collections.singletonList(KeyUtil.getDefaultKey())
+        : properties.getKeys();
+    Map<String, Algorithm> algorithms = new LinkedHashMap<>();
+    keys.forEach(key -> algorithms.put(key.getId(), KeyUtil.createAlgorithm(key)));
+    String activeKeyId = properties.getActiveKeyId() != null ? properties.getActiveKeyId() : keys.get(0).getId();
+    keys.stream()
+        .filter(key -> key.getId().equals(activeKeyId) && !KeyUtil.canSign(key))
+        .findAny()
+        .ifPresent(key -> {
+          throw new IllegalArgumentException("Active key " + activeKeyId + " has no private key");
+        });
+    return new KeyRing(activeKeyId, algorithms);
+  }
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  public Algorithm getSigningAlgorithm() {
+    return signingAlgorithm;
+  }
+
+  public JWTVerifier getVerifier(String keyId) {
+    // Tokens issued before key ids were introduced carry no kid header
+    JWTVerifier verifier = verifiers.get(keyId != null ? keyId : activeKeyId);
+    if (verifier == null) {
+      throw new JWTVerificationException("Unknown key id: " + keyId);
+    }
+    return verifier;
+  }
+}
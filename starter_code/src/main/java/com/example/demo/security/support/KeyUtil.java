@@ -1,10 +1,115 @@
 package com.example.demo.security.support;
 
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.demo.config.TokenProperties;
 import com.example.demo.constant.AppConstant;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Locale;
+
 public final class KeyUtil {
+    public static final String DEFAULT_KEY_ID = "default";
+
     public static String getSecretKey() {
         return AppConstant.SECRET_KEY;
     }
 
+    public static TokenProperties.Key getDefaultKey() {
+        TokenProperties.Key key = new TokenProperties.Key();
+        key.setId(DEFAULT_KEY_ID);
+        key.setAlgorithm("HS512");
+        key.setSecret(getSecretKey());
+        return key;
+    }
+
+    public static boolean canSign(TokenProperties.Key key) {
+        return key.getAlgorithm().toUpperCase(Locale.ROOT).startsWith("HS") || key.getPrivateKey() != null;
+    }
+
+    public static Algorithm createAlgorithm(TokenProperties.Key key) {
+        switch (key.getAlgorithm().toUpperCase(Locale.ROOT)) {
+            case "HS256":
+                return Algorithm.HMAC256(secretBytes(key));
+            case "HS384":
+                return Algorithm.HMAC384(secretBytes(key));
+            case "HS512":
+                return Algorithm.HMAC512(secretBytes(key));
+            case "RS256":
+                return Algorithm.RSA256(rsaPublicKey(key), rsaPrivateKey(key));
+            case "RS384":
+                return Algorithm.RSA384(rsaPublicKey(key), rsaPrivateKey(key));
+            case "RS512":
+                return Algorithm.RSA512(rsaPublicKey(key), rsaPrivateKey(key));
+            case "ES256":
+                return Algorithm.ECDSA256(ecPublicKey(key), ecPrivateKey(key));
+            case "ES384":
+                return Algorithm.ECDSA384(ecPublicKey(key), ecPrivateKey(key));
+            case "ES512":
+                return Algorithm.ECDSA512(ecPublicKey(key), ecPrivateKey(key));
+            default:
+                throw new IllegalArgumentException("Unsupported token algorithm " + key.getAlgorithm() + " for key " + key.getId());
+        }
+    }
+
+    private static byte[] secretBytes(TokenProperties.Key key) {
+        if (key.getSecret() == null || key.getSecret().isEmpty()) {
+            throw new IllegalArgumentException("Missing secret for key " + key.getId());
+        }
+        return key.getSecret().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static RSAPublicKey rsaPublicKey(TokenProperties.Key key) {
+        return (RSAPublicKey) publicKey("RSA", key);
+    }
+
+    private static RSAPrivateKey rsaPrivateKey(TokenProperties.Key key) {
+        return (RSAPrivateKey) privateKey("RSA", key);
+    }
+
+    private static ECPublicKey ecPublicKey(TokenProperties.Key key) {
+        return (ECPublicKey) publicKey("EC", key);
+    }
+
+    private static ECPrivateKey ecPrivateKey(TokenProperties.Key key) {
+        return (ECPrivateKey) privateKey("EC", key);
+    }
+
+    private static PublicKey publicKey(String keyAlgorithm, TokenProperties.Key key) {
+        if (key.getPublicKey() == null) {
+            throw new IllegalArgumentException("Missing public key for key " + key.getId());
+        }
+        try {
+            return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(decode(key.getPublicKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid public key for key " + key.getId(), e);
+        }
+    }
+
+    private static PrivateKey privateKey(String keyAlgorithm, TokenProperties.Key key) {
+        // Keys that are only kept to verify tokens issued before a rotation do not need a private key
+        if (key.getPrivateKey() == null) {
+            return null;
+        }
+        try {
+            return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(decode(key.getPrivateKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid private key for key " + key.getId(), e);
+        }
+    }
+
+    private static byte[] decode(String pem) {
+        String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
 }
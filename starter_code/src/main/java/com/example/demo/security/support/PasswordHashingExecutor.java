@@ -0,0 +1,92 @@
+package com.example.demo.security.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool that runs password verification off the servlet request threads. Work that does not fit
+ * into the queue is rejected right away instead of piling up behind a login storm.
+ */
+@Component
+public class PasswordHashingExecutor {
+  private final ThreadPoolExecutor executor;
+  private final LongAdder queueWaitNanos = new LongAdder();
+  private final LongAdder hashNanos = new LongAdder();
+  private final LongAdder completedCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+
+  public PasswordHashingExecutor(@Value("${app.security.hashing.threads:0}") int threads,
+                                 @Value("${app.security.hashing.queue-capacity:100}") int queueCapacity) {
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  public void execute(Runnable task) throws RejectedExecutionException {
+    long submittedAt = System.nanoTime();
+    try {
+      executor.execute(() -> {
+        long startedAt = System.nanoTime();
+        queueWaitNanos.add(startedAt - submittedAt);
+        try {
+          task.run();
+        } finally {
+          hashNanos.add(System.nanoTime() - startedAt);
+          completedCount.increment();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejectedCount.increment();
+      throw e;
+    }
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public long getCompletedCount() {
+    return completedCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  public long getTotalQueueWait(TimeUnit unit) {
+    return unit.convert(queueWaitNanos.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getTotalHashTime(TimeUnit unit) {
+    return unit.convert(hashNanos.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private static class HashingThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
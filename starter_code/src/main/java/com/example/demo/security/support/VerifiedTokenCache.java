@@ -0,0 +1,88 @@
+package com.example.demo.security.support;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of already verified tokens, keyed by the SHA-256 digest of the raw token so that no usable
+ * token is kept in memory. Entries expire together with the token's {@code exp} claim, tokens without one are
+ * never cached.
+ */
+@Component
+public class VerifiedTokenCache {
+  // Looking up the provider on every request costs more than the digest itself
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  });
+
+  private final Cache<String, DecodedJWT> cache;
+
+  public VerifiedTokenCache(@Value("${app.security.token-cache.max-size:10000}") long maxSize) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new TokenExpiry())
+        .recordStats()
+        .build();
+  }
+
+  public DecodedJWT verify(String token, Function<String, DecodedJWT> verifier) {
+    return cache.get(digest(token), key -> verifier.apply(token));
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long getSize() {
+    return cache.estimatedSize();
+  }
+
+  private static String digest(String token) {
+    // digest() resets the instance, so it is ready for the thread's next token
+    byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    return Base64.getEncoder().encodeToString(hash);
+  }
+
+  private static class TokenExpiry implements Expiry<String, DecodedJWT> {
+    @Override
+    public long expireAfterCreate(String key, DecodedJWT jwt, long currentTime) {
+      Date expiresAt = jwt.getExpiresAt();
+      if (expiresAt == null) {
+        // Nothing bounds how long such a token stays valid, so it is verified on every request
+        return 0;
+      }
+      long remainingMillis = expiresAt.getTime() - System.currentTimeMillis();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
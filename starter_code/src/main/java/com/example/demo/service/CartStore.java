@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.responses.CartView;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Where the cart endpoints read and change carts. Callers hold the user's {@link com.example.demo.support.CartLocks}
+ * stripe around every call. The cart id is an optional hint from the caller's token that saves a user lookup.
+ */
+public interface CartStore {
+  /**
+   * Applies any number of changes to the user's cart and stores it once.
+   *
+   * @return the changed cart, or null when the user does not exist
+   */
+  CartView change(String username, Long cartId, Consumer<Cart> change);
+
+  /**
+   * Reads the user's cart without storing it, e.g. to take its lines as an order.
+   *
+   * @return what the reader made of the cart, or null when the user does not exist
+   */
+  <T> T read(String username, Long cartId, Function<Cart, T> reader);
+
+  default CartView addItem(String username, Long cartId, Item item, int quantity) {
+    return change(username, cartId, cart -> cart.addItem(item, quantity));
+  }
+
+  default CartView removeItem(String username, Long cartId, Item item, int quantity) {
+    return change(username, cartId, cart -> cart.removeItem(item, quantity));
+  }
+
+  /**
+   * Writes pending changes of the user's cart to the database, e.g. before it is checked out.
+   */
+  void flush(String username);
+
+  /**
+   * Writes all pending changes and returns the number of carts written.
+   */
+  int flushAll();
+
+  /**
+   * Forgets what is held of the user's cart after it was changed in the database directly.
+   */
+  void evict(String username);
+}
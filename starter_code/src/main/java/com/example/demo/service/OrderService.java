@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderView;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface OrderService {
+  UserOrder checkout(User user);
+
+  List<OrderView> findHistory(long userId, long afterId, int limit);
+
+  long exportOrders(long userId, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+import com.example.demo.model.responses.OrderSubmissionView;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public interface OrderSubmissionService {
+  /**
+   * Reserves an order id, takes the lines of the user's cart as the order and queues it to be written. The cart
+   * is emptied once the order has been written. The caller holds the user's cart lock.
+   *
+   * @return the queued submission, its id is the reserved order id, or null when the cart is empty
+   * @throws RejectedExecutionException when the queue is full
+   * @throws IllegalStateException when an earlier order of the user has not been written yet
+   */
+  OrderSubmissionView submit(String username, long userId, Long cartId) throws RejectedExecutionException;
+
+  /**
+   * @return the user's submission, or null when it is unknown, of another user or its status is no longer kept
+   */
+  OrderSubmissionView find(long id, String username);
+}
@@ -0,0 +1,10 @@
+package com.example.demo.service;
+
+public interface PasswordRehashService {
+  /**
+   * Queues a rehash when the stored hash is below the current BCrypt strength, otherwise does nothing.
+   *
+   * @param storedHash the hash the user just logged in with
+   */
+  void rehashIfNeeded(long userId, String username, String storedHash, String rawPassword);
+}
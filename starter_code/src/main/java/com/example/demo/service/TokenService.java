@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.security.support.AuthenticatedUser;
+
+public interface TokenService {
+  String createToken(String subject);
+
+  String createToken(AuthenticatedUser user);
+
+  DecodedJWT verify(String token);
+}
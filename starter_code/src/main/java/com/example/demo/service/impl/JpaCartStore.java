@@ -0,0 +1,57 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.service.CartStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Loads the cart and saves it back on every change.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+  private final CartRepository cartRepository;
+
+  public JpaCartStore(CartRepository cartRepository) {
+    this.cartRepository = cartRepository;
+  }
+
+  @Override
+  public CartView change(String username, Long cartId, Consumer<Cart> change) {
+    Cart cart = findCart(username, cartId);
+    if (cart == null) {
+      return null;
+    }
+    change.accept(cart);
+    return CartView.from(cartRepository.save(cart));
+  }
+
+  @Override
+  public <T> T read(String username, Long cartId, Function<Cart, T> reader) {
+    Cart cart = findCart(username, cartId);
+    return cart == null ? null : reader.apply(cart);
+  }
+
+  @Override
+  public void flush(String username) {
+  }
+
+  @Override
+  public int flushAll() {
+    return 0;
+  }
+
+  @Override
+  public void evict(String username) {
+  }
+
+  private Cart findCart(String username, Long cartId) {
+    return cartId != null ? cartRepository.findWithLinesById(cartId) : cartRepository.findWithLinesByUsername(username);
+  }
+}
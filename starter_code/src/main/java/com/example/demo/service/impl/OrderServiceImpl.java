@@ -0,0 +1,80 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.service.OrderService;
+import com.example.demo.support.JsonCodec;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class OrderServiceImpl implements OrderService {
+  private final OrderRepository orderRepository;
+  private final CartRepository cartRepository;
+  private final EntityManager entityManager;
+  private final JsonCodec jsonCodec;
+
+  public OrderServiceImpl(OrderRepository orderRepository, CartRepository cartRepository,
+                          EntityManager entityManager, JsonCodec jsonCodec) {
+    this.orderRepository = orderRepository;
+    this.cartRepository = cartRepository;
+    this.entityManager = entityManager;
+    this.jsonCodec = jsonCodec;
+  }
+
+  /**
+   * Snapshots the cart into order lines and empties it in the same transaction. The line inserts and the
+   * cart line deletes go out as JDBC batches, see {@code hibernate.jdbc.batch_size}.
+   */
+  @Override
+  @Transactional
+  public UserOrder checkout(User user) {
+    Cart cart = user.getCart();
+    UserOrder order = orderRepository.save(UserOrder.createFromCart(cart));
+    cart.clear();
+    cartRepository.save(cart);
+    return order;
+  }
+
+  @Override
+  public List<OrderView> findHistory(long userId, long afterId, int limit) {
+    return OrderView.fromRows(orderRepository.findHistoryRows(userId, afterId, limit));
+  }
+
+  /**
+   * Streams the orders from a forward-only cursor and writes each one as a JSON line. Written orders are
+   * detached right away so the persistence context never holds more than the current one.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public long exportOrders(long userId, OutputStream outputStream) throws IOException {
+    long count = 0;
+    try (Stream<UserOrder> orders = orderRepository.streamByUserId(userId);
+         SequenceWriter writer = jsonCodec.writeValues(outputStream, OrderView.class)) {
+      Iterator<UserOrder> iterator = orders.iterator();
+      while (iterator.hasNext()) {
+        UserOrder order = iterator.next();
+        writer.write(OrderView.from(order));
+        entityManager.detach(order);
+        count++;
+      }
+      if (count > 0) {
+        writer.flush();
+        outputStream.write('\n');
+      }
+    }
+    return count;
+  }
+}
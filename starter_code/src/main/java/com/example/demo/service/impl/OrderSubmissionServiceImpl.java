@@ -0,0 +1,305 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.service.CartStore;
+import com.example.demo.service.OrderSubmissionService;
+import com.example.demo.support.CartLocks;
+import com.example.demo.support.OrderIdSequence;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes orders off the request thread. A submission reserves the order id, takes the cart's lines as the order
+ * and queues it, a single writer thread drains the queue and writes everything that piled up meanwhile in one
+ * transaction, so a checkout spike pays for a few commits instead of one per order. The queue is bounded, a full
+ * queue rejects the submission.
+ * <p>
+ * The cart is left alone until the orders have committed, then the ordered quantities are taken out of the carts
+ * in one more transaction. Until then a second submission of the same user is refused. A failed write or a crash
+ * loses no items: the order is either written or the cart still holds them. A crash between the two commits
+ * leaves the ordered items in the cart as well.
+ */
+@Service
+@ConditionalOnProperty(name = "app.order.submit-mode", havingValue = "async")
+public class OrderSubmissionServiceImpl implements OrderSubmissionService {
+  private final Logger logger = LoggerFactory.getLogger(OrderSubmissionServiceImpl.class);
+  private final OrderRepository orderRepository;
+  private final EntityManager entityManager;
+  private final CartStore cartStore;
+  private final OrderIdSequence orderIds;
+  private final CartLocks cartLocks;
+  private final TransactionTemplate transactionTemplate;
+  private final int queueCapacity;
+  private final int maxBatch;
+  // Held from submitting until the order is written, so queued and in-flight orders count against the capacity
+  private final Semaphore slots;
+  private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+  private final Cache<Long, Submission> submissions;
+  // Submissions not yet written, by username, at most one per user
+  private final Map<String, Submission> pending = new ConcurrentHashMap<>();
+  private final Thread writer;
+  private final LongAdder submittedCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder writtenCount = new LongAdder();
+  private final LongAdder failedCount = new LongAdder();
+  private final LongAdder batchCount = new LongAdder();
+  private volatile boolean running = true;
+
+  public OrderSubmissionServiceImpl(OrderRepository orderRepository, EntityManager entityManager, CartStore cartStore,
+                                    OrderIdSequence orderIds, CartLocks cartLocks,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.order.async.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${app.order.async.max-batch:100}") int maxBatch,
+                                    @Value("${app.order.async.status-retention-ms:600000}") long statusRetentionMillis) {
+    this.orderRepository = orderRepository;
+    this.entityManager = entityManager;
+    this.cartStore = cartStore;
+    this.orderIds = orderIds;
+    this.cartLocks = cartLocks;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.queueCapacity = queueCapacity;
+    this.maxBatch = maxBatch;
+    this.slots = new Semaphore(queueCapacity);
+    this.submissions = Caffeine.newBuilder()
+        .expireAfterWrite(statusRetentionMillis, TimeUnit.MILLISECONDS)
+        .build();
+    this.writer = new Thread(this::drain, "order-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public OrderSubmissionView submit(String username, long userId, Long cartId) throws RejectedExecutionException {
+    if (pending.containsKey(username)) {
+      throw new IllegalStateException("An order of user " + username + " is still being written");
+    }
+    if (!slots.tryAcquire()) {
+      rejectedCount.increment();
+      throw new RejectedExecutionException("Order queue is full");
+    }
+    Submission submission;
+    try {
+      submission = readCart(username, userId, cartId);
+    } catch (RuntimeException e) {
+      slots.release();
+      throw e;
+    }
+    if (submission == null) {
+      slots.release();
+      return null;
+    }
+    // Taken before queueing, the writer may be done before this returns
+    OrderSubmissionView queued = submission.toView();
+    submissions.put(submission.id, submission);
+    pending.put(username, submission);
+    submittedCount.increment();
+    queue.add(submission);
+    return queued;
+  }
+
+  @Override
+  public OrderSubmissionView find(long id, String username) {
+    Submission submission = submissions.getIfPresent(id);
+    return submission == null || !submission.username.equals(username) ? null : submission.toView();
+  }
+
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public long getSubmittedCount() {
+    return submittedCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  public long getWrittenCount() {
+    return writtenCount.sum();
+  }
+
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  private Submission readCart(String username, long userId, Long cartId) {
+    return cartStore.read(username, cartId, cart -> {
+      if (cart.getLines().isEmpty()) {
+        return null;
+      }
+      Map<Item, Integer> items = new LinkedHashMap<>();
+      cart.getLines().forEach(line -> items.put(line.getItem(), line.getQuantity()));
+      UserOrder order = UserOrder.createFromCart(cart);
+      order.setReservedId(orderIds.next());
+      return new Submission(username, userId, cartId, order, items);
+    });
+  }
+
+  private void drain() {
+    List<Submission> batch = new ArrayList<>(maxBatch);
+    // Keeps going after shutdown started until everything queued so far is written
+    while (running || !queue.isEmpty()) {
+      try {
+        Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxBatch - 1);
+        write(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        logger.error("Can not write orders", e);
+      } finally {
+        slots.release(batch.size());
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Writes a batch in one transaction. If that fails the orders are written one by one, so a single bad order
+   * does not fail the others.
+   */
+  private void write(List<Submission> batch) {
+    try {
+      transactionTemplate.execute(status -> {
+        batch.forEach(this::persist);
+        return null;
+      });
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        fail(batch.get(0), e);
+        return;
+      }
+      logger.error("Can not write a batch of {} orders, writing them one by one", batch.size(), e);
+      batch.forEach(submission -> write(Collections.singletonList(submission)));
+      return;
+    }
+    writtenCount.add(batch.size());
+    batchCount.increment();
+    removeOrderedItems(batch);
+    batch.forEach(submission -> {
+      pending.remove(submission.username, submission);
+      submission.complete();
+    });
+  }
+
+  private void persist(Submission submission) {
+    // A rolled back batch leaves the id behind, the generator hands out the reserved one again
+    submission.order.setId(null);
+    submission.order.setUser(entityManager.getReference(User.class, submission.userId));
+    orderRepository.save(submission.order);
+  }
+
+  /**
+   * Takes the ordered quantities out of the carts of a written batch in one transaction. Items added after the
+   * submission stay. All carts of the batch stay locked until that transaction has committed, the writer is the
+   * only one ever holding more than one cart lock.
+   */
+  private void removeOrderedItems(List<Submission> batch) {
+    try {
+      withCartLocks(batch, 0, () -> transactionTemplate.execute(status -> {
+        batch.forEach(submission -> cartStore.change(submission.username, submission.cartId,
+            cart -> submission.items.forEach(cart::removeItem)));
+        return null;
+      }));
+    } catch (RuntimeException e) {
+      logger.error("Can not remove the ordered items of {} written orders from their carts", batch.size(), e);
+    }
+  }
+
+  private void withCartLocks(List<Submission> batch, int from, Runnable action) {
+    if (from == batch.size()) {
+      action.run();
+      return;
+    }
+    cartLocks.withLock(batch.get(from).username, () -> {
+      withCartLocks(batch, from + 1, action);
+      return null;
+    });
+  }
+
+  private void fail(Submission submission, RuntimeException e) {
+    logger.error("Can not write order {} of user {}, its items stay in the cart", submission.id,
+        submission.username, e);
+    failedCount.increment();
+    pending.remove(submission.username, submission);
+    submission.fail();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    writer.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  private static class Submission {
+    private final long id;
+    private final String username;
+    private final long userId;
+    private final Long cartId;
+    private final UserOrder order;
+    private final Map<Item, Integer> items;
+    private volatile OrderSubmissionView.Status status = OrderSubmissionView.Status.QUEUED;
+
+    Submission(String username, long userId, Long cartId, UserOrder order, Map<Item, Integer> items) {
+      this.id = order.getReservedId();
+      this.username = username;
+      this.userId = userId;
+      this.cartId = cartId;
+      this.order = order;
+      this.items = items;
+    }
+
+    void complete() {
+      this.status = OrderSubmissionView.Status.COMPLETED;
+    }
+
+    void fail() {
+      this.status = OrderSubmissionView.Status.FAILED;
+    }
+
+    OrderSubmissionView toView() {
+      OrderSubmissionView.Status current = status;
+      return new OrderSubmissionView(id, current, current == OrderSubmissionView.Status.COMPLETED ? id : null);
+    }
+  }
+}
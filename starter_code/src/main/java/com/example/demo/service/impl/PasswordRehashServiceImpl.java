@@ -0,0 +1,67 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.CalibratedBCryptPasswordEncoder;
+import com.example.demo.service.PasswordRehashService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rehashes passwords that were stored with a lower BCrypt strength than the current one. The check runs on the
+ * caller's thread against the hash the login was verified with, so only logins that need it hand the raw password
+ * over. The rehash runs on a single background thread and is dropped when its queue is full: the next login
+ * retries it.
+ */
+@Service
+public class PasswordRehashServiceImpl implements PasswordRehashService {
+  private final Logger logger = LoggerFactory.getLogger(PasswordRehashServiceImpl.class);
+  private final UserRepository userRepository;
+  private final CalibratedBCryptPasswordEncoder passwordEncoder;
+  private final ThreadPoolExecutor executor;
+
+  public PasswordRehashServiceImpl(UserRepository userRepository, CalibratedBCryptPasswordEncoder passwordEncoder,
+                                   @Value("${app.security.bcrypt.rehash-queue-capacity:100}") int queueCapacity) {
+    this.userRepository = userRepository;
+    this.passwordEncoder = passwordEncoder;
+    this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "password-rehash");
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        },
+        new ThreadPoolExecutor.DiscardPolicy());
+  }
+
+  @Override
+  public void rehashIfNeeded(long userId, String username, String storedHash, String rawPassword) {
+    if (storedHash == null || rawPassword == null || !passwordEncoder.needsRehash(storedHash)) {
+      return;
+    }
+    executor.execute(() -> rehash(userId, username, storedHash, rawPassword));
+  }
+
+  private void rehash(long userId, String username, String storedHash, String rawPassword) {
+    try {
+      int oldCost = CalibratedBCryptPasswordEncoder.costOf(storedHash);
+      // Only replace the hash the user just logged in with, never a password changed in the meantime
+      if (userRepository.updatePassword(userId, storedHash, passwordEncoder.encode(rawPassword)) > 0) {
+        logger.info("Password of user {} rehashed from cost {} to {}", username, oldCost, passwordEncoder.getStrength());
+      }
+    } catch (RuntimeException e) {
+      logger.error("Can not rehash password of user {}", username, e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.service.impl;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.config.TokenProperties;
+import com.example.demo.constant.AppConstant;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.security.support.KeyRing;
+import com.example.demo.service.TokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Service
+public class TokenServiceImpl implements TokenService {
+  private final Logger logger = LoggerFactory.getLogger(TokenServiceImpl.class);
+  private final KeyRing keyRing;
+
+  @Autowired
+  public TokenServiceImpl(TokenProperties tokenProperties) {
+    this(KeyRing.from(tokenProperties));
+  }
+
+  public TokenServiceImpl(KeyRing keyRing) {
+    this.keyRing = keyRing;
+    logger.info("Signing tokens with key {} ({})", keyRing.getActiveKeyId(), keyRing.getSigningAlgorithm().getName());
+  }
+
+  @Override
+  public String createToken(String subject) {
+    return newToken(subject).sign(keyRing.getSigningAlgorithm());
+  }
+
+  @Override
+  public String createToken(AuthenticatedUser user) {
+    return newToken(user.getUsername())
+        .withClaim(AppConstant.USER_ID_CLAIM, user.getUserId())
+        .withClaim(AppConstant.CART_ID_CLAIM, user.getCartId())
+        .sign(keyRing.getSigningAlgorithm());
+  }
+
+  private JWTCreator.Builder newToken(String subject) {
+    return JWT.create()
+        .withKeyId(keyRing.getActiveKeyId())
+        .withSubject(subject)
+        .withExpiresAt(Instant.now().plusMillis(AppConstant.TOKEN_EXPIRATION_TIME));
+  }
+
+  @Override
+  public DecodedJWT verify(String token) {
+    DecodedJWT jwt = JWT.decode(token);
+    return keyRing.getVerifier(jwt.getKeyId()).verify(jwt);
+  }
+}
@@ -2,6 +2,7 @@ package com.example.demo.service.impl;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.AccountUserDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,8 +10,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
   private final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
@@ -27,6 +26,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
       logger.error("Not found user with : {}", username);
       throw new UsernameNotFoundException("Not found user with : " + username);
     }
-    return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
+    // The cart is a lazy proxy, reading its id does not load it
+    Long cartId = user.getCart() == null ? null : user.getCart().getId();
+    return new AccountUserDetails(user.getUsername(), user.getPassword(), user.getId(), cartId);
   }
 }
@@ -0,0 +1,347 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.service.CartStore;
+import com.example.demo.support.CartLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the carts of active users in memory and writes changes to the database behind the requests: in batches
+ * every flush interval, before a checkout and on shutdown. A cart only counts as written once the transaction
+ * holding its latest change has committed, failed writes are retried on the next run. Changes of the last
+ * interval are lost if the process dies.
+ * <p>
+ * Once {@code max-dirty} carts wait to be written, a change to another cart is written through right away and
+ * only applied in memory once written, so a failed write leaves memory and database as they were. All
+ * writes run one at a time under {@code flushLock}, which may be taken while holding a user's cart lock but never
+ * the other way round.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+  private final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+  private final CartRepository cartRepository;
+  private final CartLocks cartLocks;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final int maxDirty;
+  private final long idleMillis;
+  private final Map<String, CachedCart> carts = new ConcurrentHashMap<>();
+  private final Set<CachedCart> dirty = ConcurrentHashMap.newKeySet();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final ScheduledExecutorService scheduler;
+
+  public WriteBehindCartStore(CartRepository cartRepository, CartLocks cartLocks,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.cart.write-behind.flush-interval-ms:1000}") long flushIntervalMillis,
+                              @Value("${app.cart.write-behind.batch-size:100}") int batchSize,
+                              @Value("${app.cart.write-behind.max-dirty:10000}") int maxDirty,
+                              @Value("${app.cart.write-behind.idle-ms:600000}") long idleMillis) {
+    this.cartRepository = cartRepository;
+    this.cartLocks = cartLocks;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchSize = batchSize;
+    this.maxDirty = maxDirty;
+    this.idleMillis = idleMillis;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cart-write-behind");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void flush(String username) {
+    CachedCart entry = username == null ? null : carts.get(username);
+    if (entry != null && entry.isDirty()) {
+      write(Collections.singletonList(entry.snapshot()));
+    }
+  }
+
+  @Override
+  public int flushAll() {
+    int written = 0;
+    List<Snapshot> batch = new ArrayList<>(batchSize);
+    for (CachedCart entry : dirty) {
+      Snapshot snapshot = cartLocks.withLock(entry.username, () -> entry.evicted ? null : entry.snapshot());
+      if (snapshot != null) {
+        batch.add(snapshot);
+      }
+      if (batch.size() == batchSize) {
+        written += writeBatch(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      written += writeBatch(batch);
+    }
+    return written;
+  }
+
+  @Override
+  public void evict(String username) {
+    CachedCart entry = carts.remove(username);
+    if (entry != null) {
+      entry.evicted = true;
+      dirty.remove(entry);
+    }
+  }
+
+  public int getCachedCount() {
+    return carts.size();
+  }
+
+  public int getDirtyCount() {
+    return dirty.size();
+  }
+
+  @Override
+  public CartView change(String username, Long cartId, Consumer<Cart> change) {
+    CachedCart entry = find(username, cartId);
+    if (entry == null) {
+      return null;
+    }
+    if (!dirty.contains(entry) && dirty.size() >= maxDirty) {
+      Cart changed = copyOf(entry.cart);
+      change.accept(changed);
+      Snapshot snapshot = new Snapshot(entry, changed, entry.version + 1);
+      write(Collections.singletonList(snapshot));
+      entry.cart = changed;
+      entry.version = snapshot.version;
+      dirty.remove(entry);
+      return CartView.from(changed);
+    }
+    change.accept(entry.cart);
+    // Only ever incremented under the user's lock
+    entry.version++;
+    dirty.add(entry);
+    return CartView.from(entry.cart);
+  }
+
+  @Override
+  public <T> T read(String username, Long cartId, Function<Cart, T> reader) {
+    CachedCart entry = find(username, cartId);
+    return entry == null ? null : reader.apply(entry.cart);
+  }
+
+  private CachedCart find(String username, Long cartId) {
+    if (username == null) {
+      return null;
+    }
+    CachedCart entry = carts.get(username);
+    if (entry == null) {
+      Cart cart = cartId != null
+          ? cartRepository.findWithLinesById(cartId)
+          : cartRepository.findWithLinesByUsername(username);
+      if (cart == null) {
+        return null;
+      }
+      entry = new CachedCart(username, copyOf(cart));
+      carts.put(username, entry);
+    }
+    entry.lastAccess = System.currentTimeMillis();
+    return entry;
+  }
+
+  /**
+   * Writes a batch in one transaction. If that fails the carts are written one by one, so a single bad cart
+   * does not hold back the others.
+   */
+  private int writeBatch(List<Snapshot> batch) {
+    try {
+      return write(batch);
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        logger.error("Can not flush cart of user {}, keeping it for the next run", batch.get(0).entry.username, e);
+        return 0;
+      }
+      logger.error("Can not flush a batch of {} carts, writing them one by one", batch.size(), e);
+      int written = 0;
+      for (Snapshot snapshot : batch) {
+        written += writeBatch(Collections.singletonList(snapshot));
+      }
+      return written;
+    }
+  }
+
+  private int write(List<Snapshot> snapshots) {
+    flushLock.lock();
+    try {
+      // A snapshot taken before a newer one was written, e.g. by a checkout, must not overwrite it
+      List<Snapshot> pending = snapshots.stream()
+          .filter(snapshot -> snapshot.version > snapshot.entry.persistedVersion)
+          .collect(Collectors.toList());
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      transactionTemplate.execute(status -> {
+        persist(pending);
+        return null;
+      });
+      for (Snapshot snapshot : pending) {
+        CachedCart entry = snapshot.entry;
+        entry.persistedVersion = snapshot.version;
+        dirty.remove(entry);
+        // A change made while writing keeps the cart dirty
+        if (entry.isDirty()) {
+          dirty.add(entry);
+        }
+      }
+      return pending.size();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Applies the snapshots to the managed carts, their changes go out as batched statements on commit.
+   */
+  private void persist(List<Snapshot> snapshots) {
+    List<Long> ids = snapshots.stream().map(snapshot -> snapshot.cart.getId()).collect(Collectors.toList());
+    Map<Long, Cart> persistent = cartRepository.findAllWithLinesByIdIn(ids).stream()
+        .collect(Collectors.toMap(Cart::getId, Function.identity()));
+    for (Snapshot snapshot : snapshots) {
+      Cart cart = persistent.get(snapshot.cart.getId());
+      if (cart == null) {
+        logger.warn("Cart {} of user {} no longer exists, dropping its changes", snapshot.cart.getId(),
+            snapshot.entry.username);
+        continue;
+      }
+      Map<Long, Integer> quantities = snapshot.cart.getLines().stream()
+          .collect(Collectors.toMap(line -> line.getItem().getId(), CartLine::getQuantity));
+      for (CartLine line : new ArrayList<>(cart.getLines())) {
+        if (!quantities.containsKey(line.getItem().getId())) {
+          cart.removeItem(line.getItem(), line.getQuantity());
+        }
+      }
+      for (CartLine line : snapshot.cart.getLines()) {
+        int difference = line.getQuantity() - quantityOf(cart, line.getItem());
+        if (difference > 0) {
+          cart.addItem(line.getItem(), difference);
+        } else if (difference < 0) {
+          cart.removeItem(line.getItem(), -difference);
+        }
+      }
+    }
+  }
+
+  private void flushInBackground() {
+    try {
+      int written = flushAll();
+      if (written > 0) {
+        logger.debug("Flushed {} carts", written);
+      }
+      evictIdle();
+    } catch (RuntimeException e) {
+      logger.error("Can not flush carts", e);
+    }
+  }
+
+  private void evictIdle() {
+    long idleSince = System.currentTimeMillis() - idleMillis;
+    for (CachedCart entry : carts.values()) {
+      if (entry.lastAccess < idleSince && !entry.isDirty()) {
+        cartLocks.withLock(entry.username, () -> {
+          if (entry.lastAccess < idleSince && !entry.isDirty() && carts.remove(entry.username, entry)) {
+            entry.evicted = true;
+          }
+          return null;
+        });
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    logger.info("Flushed {} carts on shutdown", flushAll());
+  }
+
+  private static int quantityOf(Cart cart, Item item) {
+    for (CartLine line : cart.getLines()) {
+      if (line.getItem().equals(item)) {
+        return line.getQuantity();
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * A detached copy that is never handed to the persistence context, only its lines are copied over.
+   */
+  private static Cart copyOf(Cart cart) {
+    Cart copy = new Cart();
+    copy.setId(cart.getId());
+    copy.setTotal(BigDecimal.ZERO);
+    cart.getLines().forEach(line -> copy.addItem(line.getItem(), line.getQuantity()));
+    return copy;
+  }
+
+  private static class CachedCart {
+    private final String username;
+    // Only replaced under the user's lock
+    private Cart cart;
+    private volatile long version;
+    private volatile long persistedVersion;
+    private volatile long lastAccess;
+    private volatile boolean evicted;
+
+    CachedCart(String username, Cart cart) {
+      this.username = username;
+      this.cart = cart;
+    }
+
+    boolean isDirty() {
+      return version != persistedVersion;
+    }
+
+    Snapshot snapshot() {
+      return new Snapshot(this, copyOf(cart), version);
+    }
+  }
+
+  private static class Snapshot {
+    private final CachedCart entry;
+    private final Cart cart;
+    private final long version;
+
+    Snapshot(CachedCart entry, Cart cart, long version) {
+      this.entry = entry;
+      this.cart = cart;
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks that serialize the read-modify-write of a user's cart. Requests of the same user queue on one
+ * stripe while different users almost always land on different stripes and run in parallel. The lock has to be
+ * held from loading the cart until its transaction has committed.
+ */
+@Component
+public class CartLocks {
+  private final ReentrantLock[] stripes;
+  private final int mask;
+  private final LongAdder contendedCount = new LongAdder();
+
+  public CartLocks(@Value("${app.cart.lock-stripes:64}") int stripes) {
+    int size = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+    this.mask = size - 1;
+  }
+
+  public <T> T withLock(String username, Supplier<T> action) {
+    ReentrantLock lock = stripeFor(username);
+    if (!lock.tryLock()) {
+      contendedCount.increment();
+      lock.lock();
+    }
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  public long getContendedCount() {
+    return contendedCount.sum();
+  }
+
+  int stripeIndex(String username) {
+    int hash = username == null ? 0 : username.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private ReentrantLock stripeFor(String username) {
+    return stripes[stripeIndex(username)];
+  }
+}
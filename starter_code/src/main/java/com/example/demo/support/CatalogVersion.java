@@ -0,0 +1,95 @@
+package com.example.demo.support;
+
+import com.example.demo.event.ItemChangedEvent;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version of the item catalog, derived from the items themselves so that every node serving the same catalog
+ * hands out the same ETag, before and after a restart. It is read on startup, once a transaction that changed an
+ * item has committed and every refresh interval, which bounds how long a change made by another node or outside
+ * JPA goes unnoticed.
+ * <p>
+ * Only changes saved through JPA entities publish an {@link ItemChangedEvent}. Items changed with bulk JPQL or
+ * native SQL keep the old ETag until the next refresh interval picks them up, a refresh interval of 0 keeps it
+ * until the next entity change. The version covers the whole catalog, so any item change invalidates every page.
+ */
+@Component
+public class CatalogVersion {
+  private final Logger logger = LoggerFactory.getLogger(CatalogVersion.class);
+  private final ItemRepository itemRepository;
+  private final ApplicationContext applicationContext;
+  private final ScheduledExecutorService scheduler;
+  private volatile String eTag;
+
+  public CatalogVersion(ItemRepository itemRepository, ApplicationContext applicationContext,
+                        @Value("${app.catalog.version-refresh-ms:5000}") long refreshMillis) {
+    this.itemRepository = itemRepository;
+    this.applicationContext = applicationContext;
+    if (refreshMillis > 0) {
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-version");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.scheduleWithFixedDelay(this::refreshInBackground, refreshMillis, refreshMillis,
+          TimeUnit.MILLISECONDS);
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    // The management server's child context publishes its own refresh, which reaches this listener as well
+    if (event.getApplicationContext() == applicationContext) {
+      refresh();
+    }
+  }
+
+  public synchronized void refresh() {
+    ItemRepository.CatalogState state = itemRepository.findCatalogState();
+    eTag = "\"" + state.getCount() + '-' + state.getMaxId() + '-' + state.getRevisions() + "\"";
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onItemChanged(ItemChangedEvent event) {
+    refresh();
+  }
+
+  public String getETag() {
+    String current = eTag;
+    if (current == null) {
+      refresh();
+      current = eTag;
+    }
+    return current;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+
+  private void refreshInBackground() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      logger.error("Can not refresh the catalog version", e);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hit ratios of the Hibernate second-level cache regions, needs {@code hibernate.generate_statistics}.
+ */
+@Component
+public class HibernateCacheStatistics {
+  private final Statistics statistics;
+
+  public HibernateCacheStatistics(EntityManagerFactory entityManagerFactory) {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  public CacheRegionStatistics getRegionStatistics(String regionName) {
+    return statistics.getDomainDataRegionStatistics(regionName);
+  }
+
+  public double getHitRatio(String regionName) {
+    CacheRegionStatistics regionStatistics = getRegionStatistics(regionName);
+    return hitRatio(regionStatistics.getHitCount(), regionStatistics.getMissCount());
+  }
+
+  public double getNaturalIdHitRatio() {
+    return hitRatio(statistics.getNaturalIdCacheHitCount(), statistics.getNaturalIdCacheMissCount());
+  }
+
+  public Statistics getStatistics() {
+    return statistics;
+  }
+
+  private static double hitRatio(long hits, long misses) {
+    long requests = hits + misses;
+    return requests == 0 ? 0.0 : (double) hits / requests;
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.support;
+
+import com.example.demo.constant.AppConstant;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Responses of requests sent with an {@code Idempotency-Key}, so a retried request is answered from memory
+ * instead of being executed again. A duplicate that arrives while the first request is still running waits
+ * for its response, for a bounded time: if the first request is still running then, the duplicate gets a 409
+ * and should retry later. Server errors and exceptions are not kept, the next retry executes again.
+ */
+@Component
+public class IdempotencyCache {
+  private final Logger logger = LoggerFactory.getLogger(IdempotencyCache.class);
+
+  private final Cache<String, CompletableFuture<ResponseEntity<?>>> responses;
+  private final long waitMillis;
+  private final LongAdder replayedCount = new LongAdder();
+
+  public IdempotencyCache(@Value("${app.order.idempotency.max-size:10000}") long maxSize,
+                          @Value("${app.order.idempotency.ttl-ms:86400000}") long ttlMillis,
+                          @Value("${app.order.idempotency.wait-ms:10000}") long waitMillis) {
+    this.waitMillis = waitMillis;
+    this.responses = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  public ResponseEntity<?> execute(String key, Supplier<ResponseEntity<?>> action) {
+    CompletableFuture<ResponseEntity<?>> created = new CompletableFuture<>();
+    CompletableFuture<ResponseEntity<?>> existing = responses.asMap().putIfAbsent(key, created);
+    if (existing != null) {
+      return replay(key, existing);
+    }
+    try {
+      ResponseEntity<?> response = action.get();
+      if (response.getStatusCode().is5xxServerError()) {
+        responses.asMap().remove(key, created);
+      }
+      created.complete(response);
+      return response;
+    } catch (Throwable e) {
+      // Errors and sneaky checked exceptions too, or duplicates would wait on the entry until it expires
+      responses.asMap().remove(key, created);
+      created.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  public long getReplayedCount() {
+    return replayedCount.sum();
+  }
+
+  public long getSize() {
+    return responses.estimatedSize();
+  }
+
+  private ResponseEntity<?> replay(String key, CompletableFuture<ResponseEntity<?>> future) {
+    ResponseEntity<?> response;
+    try {
+      response = future.get(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      logger.warn("Request with idempotency key {} is still running after {} ms", key, waitMillis);
+      return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").build();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    replayedCount.increment();
+    return ResponseEntity.status(response.getStatusCode())
+        .headers(response.getHeaders())
+        .header(AppConstant.IDEMPOTENT_REPLAYED_HEADER, "true")
+        .body(response.getBody());
+  }
+}
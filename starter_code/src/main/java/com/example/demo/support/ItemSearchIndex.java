@@ -0,0 +1,421 @@
+package com.example.demo.support;
+
+import com.example.demo.event.ItemChangedEvent;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over item names and descriptions. Every query token but the last must match a
+ * whole word, the last one matches as a prefix so the index can back a typeahead. Words found in the name
+ * weigh more than words found in the description, and whole-word matches weigh more than prefix matches;
+ * equal scores keep the older item first.
+ * <p>
+ * Each word maps to an immutable posting list of item ids in ascending order, so queries intersect and
+ * merge plain arrays. Writers replace the lists of the words they touch, readers never lock. A reload builds a
+ * complete new index and publishes it at once, so searches never see a half loaded catalog. The index is
+ * loaded on startup and follows item changes once their transaction has committed.
+ */
+@Component
+public class ItemSearchIndex {
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final int NAME_WEIGHT = 3;
+  private static final int DESCRIPTION_WEIGHT = 1;
+  private static final int EXACT_MATCH_FACTOR = 2;
+  private static final int LOAD_PAGE_SIZE = 500;
+
+  private final ItemRepository itemRepository;
+  private final ApplicationContext applicationContext;
+  private volatile Contents contents = new Contents();
+
+  public ItemSearchIndex(ItemRepository itemRepository, ApplicationContext applicationContext) {
+    this.itemRepository = itemRepository;
+    this.applicationContext = applicationContext;
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    // The management server's child context publishes its own refresh, which reaches this listener as well
+    if (event.getApplicationContext() == applicationContext) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Reloads the whole catalog. Item changes committed meanwhile wait for the lock and are applied on top.
+   */
+  public synchronized void rebuild() {
+    List<Item> catalog = new ArrayList<>();
+    Pageable pageable = PageRequest.of(0, LOAD_PAGE_SIZE, Sort.by("id"));
+    Page<Item> page;
+    do {
+      page = itemRepository.findAll(pageable);
+      catalog.addAll(page.getContent());
+      pageable = page.nextPageable();
+    } while (page.hasNext());
+    load(catalog);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onItemChanged(ItemChangedEvent event) {
+    if (event.getType() == ItemChangedEvent.Type.DELETED) {
+      remove(event.getItem().getId());
+    } else {
+      index(event.getItem());
+    }
+  }
+
+  /**
+   * Replaces the content of the index with the given items in one pass.
+   */
+  public synchronized void load(Collection<Item> catalog) {
+    List<IndexedItem> indexedItems = new ArrayList<>(catalog.size());
+    catalog.forEach(item -> indexedItems.add(new IndexedItem(copyOf(item), weigh(item))));
+    indexedItems.sort(Comparator.comparingLong(indexedItem -> indexedItem.item.getId()));
+
+    Map<String, PostingsBuilder> builders = new HashMap<>();
+    for (IndexedItem indexedItem : indexedItems) {
+      indexedItem.weights.forEach((token, weight) ->
+          builders.computeIfAbsent(token, key -> new PostingsBuilder()).add(indexedItem.item.getId(), weight));
+    }
+    Contents loaded = new Contents();
+    builders.forEach((token, builder) -> loaded.postings.put(token, builder.build()));
+    indexedItems.forEach(indexedItem -> loaded.items.put(indexedItem.item.getId(), indexedItem));
+    contents = loaded;
+  }
+
+  public synchronized void index(Item item) {
+    remove(item.getId());
+    Contents current = contents;
+    Map<String, Integer> weights = weigh(item);
+    weights.forEach((token, weight) -> current.postings.merge(token, Postings.of(item.getId(), weight),
+        (existing, added) -> existing.with(item.getId(), weight)));
+    current.items.put(item.getId(), new IndexedItem(copyOf(item), weights));
+  }
+
+  public synchronized void remove(Long itemId) {
+    Contents current = contents;
+    IndexedItem indexedItem = current.items.remove(itemId);
+    if (indexedItem == null) {
+      return;
+    }
+    for (String token : indexedItem.weights.keySet()) {
+      current.postings.computeIfPresent(token, (key, existing) -> {
+        Postings remaining = existing.without(itemId);
+        return remaining.size() == 0 ? null : remaining;
+      });
+    }
+  }
+
+  public List<Item> search(String query, int limit) {
+    List<String> tokens = tokenize(query);
+    if (tokens.isEmpty() || limit < 1) {
+      return Collections.emptyList();
+    }
+    // One snapshot per query, a reload in between must not mix two catalogs
+    Contents current = contents;
+    Postings scores = prefixMatches(current, tokens.get(tokens.size() - 1));
+    List<String> words = tokens.subList(0, tokens.size() - 1);
+    if (!words.isEmpty()) {
+      scores = Postings.intersect(exactMatches(current, words), scores);
+    }
+    return topItems(current, scores, limit);
+  }
+
+  public int size() {
+    return contents.items.size();
+  }
+
+  static List<String> tokenize(String text) {
+    if (text == null) {
+      return Collections.emptyList();
+    }
+    List<String> tokens = new ArrayList<>();
+    for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private static Map<String, Integer> weigh(Item item) {
+    Map<String, Integer> weights = new HashMap<>();
+    tokenize(item.getName()).forEach(token -> weights.merge(token, NAME_WEIGHT, Integer::sum));
+    tokenize(item.getDescription()).forEach(token -> weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum));
+    return weights;
+  }
+
+  private static Postings exactMatches(Contents current, List<String> words) {
+    List<Postings> matches = new ArrayList<>(words.size());
+    for (String word : words) {
+      Postings wordPostings = current.postings.get(word);
+      if (wordPostings == null) {
+        return Postings.EMPTY;
+      }
+      matches.add(wordPostings);
+    }
+    // Starting from the rarest word keeps every intermediate result as small as possible
+    matches.sort(Comparator.comparingInt(Postings::size));
+    Postings scores = matches.get(0).scale(EXACT_MATCH_FACTOR);
+    for (Postings wordPostings : matches.subList(1, matches.size())) {
+      scores = Postings.intersect(scores, wordPostings.scale(EXACT_MATCH_FACTOR));
+    }
+    return scores;
+  }
+
+  private static Postings prefixMatches(Contents current, String prefix) {
+    List<Postings> matches = new ArrayList<>();
+    for (Map.Entry<String, Postings> entry
+        : current.postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).entrySet()) {
+      int factor = entry.getKey().length() == prefix.length() ? EXACT_MATCH_FACTOR : 1;
+      matches.add(entry.getValue().scale(factor));
+    }
+    // An item counts once per query token, with its best matching word
+    return Postings.unionMax(matches);
+  }
+
+  private static List<Item> topItems(Contents current, Postings scores, int limit) {
+    int capacity = Math.min(limit, scores.size());
+    long[] topIds = new long[capacity];
+    int[] topScores = new int[capacity];
+    int count = 0;
+    // Ids come in ascending order, so an equal score never moves ahead of an older item
+    for (int i = 0; i < scores.size(); i++) {
+      int score = scores.weights[i];
+      if (count == capacity && score <= topScores[capacity - 1]) {
+        continue;
+      }
+      int position = count < capacity ? count++ : capacity - 1;
+      while (position > 0 && topScores[position - 1] < score) {
+        topIds[position] = topIds[position - 1];
+        topScores[position] = topScores[position - 1];
+        position--;
+      }
+      topIds[position] = scores.ids[i];
+      topScores[position] = score;
+    }
+    List<Item> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      IndexedItem indexedItem = current.items.get(topIds[i]);
+      if (indexedItem != null) {
+        result.add(indexedItem.item);
+      }
+    }
+    return result;
+  }
+
+  private static Item copyOf(Item item) {
+    Item copy = new Item();
+    copy.setId(item.getId());
+    copy.setName(item.getName());
+    copy.setPrice(item.getPrice());
+    copy.setDescription(item.getDescription());
+    return copy;
+  }
+
+  private static class Contents {
+    private final ConcurrentNavigableMap<String, Postings> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, IndexedItem> items = new ConcurrentHashMap<>();
+  }
+
+  private static class IndexedItem {
+    private final Item item;
+    private final Map<String, Integer> weights;
+
+    IndexedItem(Item item, Map<String, Integer> weights) {
+      this.item = item;
+      this.weights = weights;
+    }
+  }
+
+  /**
+   * Immutable list of item ids in ascending order with a weight, or a score, per item.
+   */
+  private static final class Postings {
+    private static final Postings EMPTY = new Postings(new long[0], new int[0], 0);
+
+    private final long[] ids;
+    private final int[] weights;
+    private final int size;
+
+    private Postings(long[] ids, int[] weights, int size) {
+      this.ids = ids;
+      this.weights = weights;
+      this.size = size;
+    }
+
+    static Postings of(long id, int weight) {
+      return new Postings(new long[]{id}, new int[]{weight}, 1);
+    }
+
+    int size() {
+      return size;
+    }
+
+    Postings with(long id, int weight) {
+      int index = Arrays.binarySearch(ids, 0, size, id);
+      if (index >= 0) {
+        int[] newWeights = Arrays.copyOf(weights, size);
+        newWeights[index] = weight;
+        return new Postings(ids, newWeights, size);
+      }
+      int insertAt = -index - 1;
+      long[] newIds = new long[size + 1];
+      int[] newWeights = new int[size + 1];
+      System.arraycopy(ids, 0, newIds, 0, insertAt);
+      System.arraycopy(weights, 0, newWeights, 0, insertAt);
+      newIds[insertAt] = id;
+      newWeights[insertAt] = weight;
+      System.arraycopy(ids, insertAt, newIds, insertAt + 1, size - insertAt);
+      System.arraycopy(weights, insertAt, newWeights, insertAt + 1, size - insertAt);
+      return new Postings(newIds, newWeights, size + 1);
+    }
+
+    Postings without(long id) {
+      int index = Arrays.binarySearch(ids, 0, size, id);
+      if (index < 0) {
+        return this;
+      }
+      long[] newIds = new long[size - 1];
+      int[] newWeights = new int[size - 1];
+      System.arraycopy(ids, 0, newIds, 0, index);
+      System.arraycopy(weights, 0, newWeights, 0, index);
+      System.arraycopy(ids, index + 1, newIds, index, size - index - 1);
+      System.arraycopy(weights, index + 1, newWeights, index, size - index - 1);
+      return new Postings(newIds, newWeights, size - 1);
+    }
+
+    Postings scale(int factor) {
+      if (factor == 1) {
+        return this;
+      }
+      int[] scaled = new int[size];
+      for (int i = 0; i < size; i++) {
+        scaled[i] = weights[i] * factor;
+      }
+      return new Postings(ids, scaled, size);
+    }
+
+    /**
+     * Items found in both, with the sum of their scores.
+     */
+    static Postings intersect(Postings left, Postings right) {
+      if (left.size > right.size) {
+        return intersect(right, left);
+      }
+      long[] ids = new long[left.size];
+      int[] scores = new int[left.size];
+      int count = 0;
+      int j = 0;
+      for (int i = 0; i < left.size && j < right.size; i++) {
+        long id = left.ids[i];
+        j = seek(right, j, id);
+        if (j < right.size && right.ids[j] == id) {
+          ids[count] = id;
+          scores[count++] = left.weights[i] + right.weights[j];
+        }
+      }
+      return new Postings(ids, scores, count);
+    }
+
+    /**
+     * Items found in any of the lists, with the best of their scores. Merges all lists in one pass, a short
+     * prefix can match thousands of words.
+     */
+    static Postings unionMax(List<Postings> lists) {
+      if (lists.isEmpty()) {
+        return EMPTY;
+      }
+      if (lists.size() == 1) {
+        return lists.get(0);
+      }
+      int total = 0;
+      for (Postings list : lists) {
+        total += list.size;
+      }
+      long[] ids = new long[total];
+      int[] scores = new int[total];
+      int[] positions = new int[lists.size()];
+      PriorityQueue<Integer> heads = new PriorityQueue<>(lists.size(),
+          Comparator.comparingLong(list -> lists.get(list).ids[positions[list]]));
+      for (int list = 0; list < lists.size(); list++) {
+        if (lists.get(list).size > 0) {
+          heads.add(list);
+        }
+      }
+      int count = 0;
+      while (!heads.isEmpty()) {
+        int list = heads.poll();
+        Postings postings = lists.get(list);
+        long id = postings.ids[positions[list]];
+        int score = postings.weights[positions[list]++];
+        if (count > 0 && ids[count - 1] == id) {
+          scores[count - 1] = Math.max(scores[count - 1], score);
+        } else {
+          ids[count] = id;
+          scores[count++] = score;
+        }
+        if (positions[list] < postings.size) {
+          heads.add(list);
+        }
+      }
+      return new Postings(ids, scores, count);
+    }
+
+    /**
+     * First position at or after {@code from} whose id is not below {@code id}. Gallops so that a short
+     * list intersected with a long one skips over the long one instead of walking it.
+     */
+    private static int seek(Postings postings, int from, long id) {
+      int bound = 1;
+      while (from + bound < postings.size && postings.ids[from + bound] < id) {
+        bound <<= 1;
+      }
+      int index = Arrays.binarySearch(postings.ids, from, Math.min(from + bound + 1, postings.size), id);
+      return index >= 0 ? index : -index - 1;
+    }
+  }
+
+  private static class PostingsBuilder {
+    private long[] ids = new long[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    void add(long id, int weight) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      ids[size] = id;
+      weights[size++] = weight;
+    }
+
+    Postings build() {
+      return new Postings(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size), size);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.support;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.LoginRequest;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartBatchView;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.model.responses.OrderView;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON codec on top of the application ObjectMapper. Readers and writers of the request types and of
+ * every type the controllers answer with are resolved once at startup, which also warms the mapper's
+ * (de)serializer caches used by the MVC message converters, so no request pays for introspecting a type.
+ * A new response type belongs in {@link #RESPONSE_TYPES}, JsonCodecTest fails otherwise.
+ */
+@Component
+public class JsonCodec {
+  static final List<Class<?>> REQUEST_TYPES =
+      Arrays.asList(LoginRequest.class, CreateUserRequest.class, ModifyCartRequest.class,
+          ModifyCartBatchRequest.class);
+  static final List<Class<?>> RESPONSE_TYPES =
+      Arrays.asList(Item.class, User.class, CartView.class, CartBatchView.class, OrderView.class,
+          OrderSubmissionView.class, Cart.class, UserOrder.class);
+
+  private final ObjectMapper objectMapper;
+  private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  public JsonCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    REQUEST_TYPES.forEach(this::reader);
+    RESPONSE_TYPES.forEach(type -> {
+      writer(type);
+      writer(objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+    });
+  }
+
+  public <T> T read(InputStream inputStream, Class<T> type) throws IOException {
+    return reader(type).readValue(inputStream);
+  }
+
+  public byte[] write(Object value) throws IOException {
+    return writer(value.getClass()).writeValueAsBytes(value);
+  }
+
+  /**
+   * Writes values as newline-delimited JSON. Values are not flushed one by one, the output stream's own
+   * buffer decides when bytes go out.
+   */
+  public SequenceWriter writeValues(OutputStream outputStream, Class<?> type) throws IOException {
+    return writer(type)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .withRootValueSeparator("\n")
+        .writeValues(outputStream);
+  }
+
+  public ObjectReader reader(Class<?> type) {
+    return reader(objectMapper.constructType(type));
+  }
+
+  public ObjectReader reader(JavaType type) {
+    return readers.computeIfAbsent(type, objectMapper::readerFor);
+  }
+
+  public ObjectWriter writer(Class<?> type) {
+    return writer(objectMapper.constructType(type));
+  }
+
+  public ObjectWriter writer(JavaType type) {
+    return writers.computeIfAbsent(type, objectMapper::writerFor);
+  }
+
+  public ObjectMapper getObjectMapper() {
+    return objectMapper;
+  }
+}
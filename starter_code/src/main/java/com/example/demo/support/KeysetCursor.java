@@ -0,0 +1,29 @@
+package com.example.demo.support;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque token for keyset pagination, wraps the id of the last row of a page.
+ */
+public final class KeysetCursor {
+  private KeysetCursor() {
+  }
+
+  public static String encode(long lastId) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(lastId).array());
+  }
+
+  public static long decode(String cursor) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+    if (bytes.length != Long.BYTES) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    return ByteBuffer.wrap(bytes).getLong();
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the calls the request latency is made of: every repository method, signing and verifying tokens and
+ * BCrypt hashing. The handlers themselves are timed by Spring Boot as {@code http.server.requests}. Percentile
+ * histograms and SLO buckets are switched on per meter name in {@code management.metrics.distribution}.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+  private static final String NO_EXCEPTION = "none";
+  private final MeterRegistry meterRegistry;
+  private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+  public MetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+  public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(joinPoint, "repository.invocations", Tags.of(
+        "repository", repositoryName(joinPoint.getTarget()),
+        "method", joinPoint.getSignature().getName()));
+  }
+
+  @Around("execution(* com.example.demo.service.TokenService.createToken(..))")
+  public Object timeTokenSigning(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(joinPoint, "jwt.sign", Tags.empty());
+  }
+
+  @Around("execution(* com.example.demo.service.TokenService.verify(..))")
+  public Object timeTokenVerification(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(joinPoint, "jwt.verify", Tags.empty());
+  }
+
+  @Around("execution(* org.springframework.security.crypto.password.PasswordEncoder+.encode(..))"
+      + " || execution(* org.springframework.security.crypto.password.PasswordEncoder+.matches(..))")
+  public Object timePasswordHashing(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(joinPoint, "password.hashing", Tags.of("operation", joinPoint.getSignature().getName()));
+  }
+
+  private Object time(ProceedingJoinPoint joinPoint, String name, Tags tags) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = NO_EXCEPTION;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      exception = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(Timer.builder(name)
+          .tags(tags)
+          .tag("outcome", NO_EXCEPTION.equals(exception) ? "SUCCESS" : "ERROR")
+          .tag("exception", exception)
+          .register(meterRegistry));
+    }
+  }
+
+  /**
+   * The repository interface the application declared, not the interface of the inherited method.
+   */
+  private String repositoryName(Object repository) {
+    return repositoryNames.computeIfAbsent(repository.getClass(), type -> {
+      Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(repository);
+      return interfaces.length == 0 ? type.getSimpleName() : interfaces[0].getSimpleName();
+    });
+  }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool that runs request handlers off the servlet threads, sized to the connection pool so that a
+ * thread never waits for a connection. Work that does not fit into the queue is rejected right away.
+ * <p>
+ * Every task gets its own entity manager for its whole run, like open-in-view gives the servlet threads, so
+ * handlers see the same persistence context no matter which thread they run on.
+ */
+@Component
+@ConditionalOnProperty(name = "app.web.execution-mode", havingValue = "async")
+public class PersistenceExecutor {
+  private final EntityManagerFactory entityManagerFactory;
+  private final ThreadPoolExecutor executor;
+  private final long timeoutMillis;
+  private final LongAdder queueWaitNanos = new LongAdder();
+  private final LongAdder completedCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder timedOutCount = new LongAdder();
+
+  public PersistenceExecutor(EntityManagerFactory entityManagerFactory,
+                             @Value("${app.persistence.threads:0}") int threads,
+                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                             @Value("${app.persistence.queue-capacity:200}") int queueCapacity,
+                             @Value("${app.persistence.timeout-ms:10000}") long timeoutMillis) {
+    this.entityManagerFactory = entityManagerFactory;
+    int poolSize = threads > 0 ? threads : connectionPoolSize;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new PersistenceThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public <T> CompletableFuture<T> submit(Callable<T> task) throws RejectedExecutionException {
+    long submittedAt = System.nanoTime();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        // Abandoned while queued, nobody waits for the result anymore
+        if (result.isDone()) {
+          return;
+        }
+        queueWaitNanos.add(System.nanoTime() - submittedAt);
+        try {
+          result.complete(callWithEntityManager(task));
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        } finally {
+          completedCount.increment();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejectedCount.increment();
+      throw e;
+    }
+    return result;
+  }
+
+  /**
+   * Gives up waiting for a task. A task that has not started yet is skipped, a running one can not be stopped
+   * and finishes unobserved.
+   */
+  public void abandon(CompletableFuture<?> result) {
+    if (result.cancel(false)) {
+      timedOutCount.increment();
+    }
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public int getPoolSize() {
+    return executor.getMaximumPoolSize();
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public long getCompletedCount() {
+    return completedCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  public long getTimedOutCount() {
+    return timedOutCount.sum();
+  }
+
+  public long getTotalQueueWait(TimeUnit unit) {
+    return unit.convert(queueWaitNanos.sum(), TimeUnit.NANOSECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private <T> T callWithEntityManager(Callable<T> task) throws Exception {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+    try {
+      return task.call();
+    } finally {
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      entityManager.close();
+    }
+  }
+
+  private static class PersistenceThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "persistence-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.support;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ * A pooled sequence that inserts an entity under the id reserved for it beforehand, see {@link OrderIdSequence}.
+ * Entities without a reserved id draw the next value as usual.
+ */
+public class ReservableSequenceGenerator extends SequenceStyleGenerator {
+
+  public interface Reservable {
+    Long getReservedId();
+  }
+
+  @Override
+  public Serializable generate(SharedSessionContractImplementor session, Object object) {
+    Long reservedId = object instanceof Reservable ? ((Reservable) object).getReservedId() : null;
+    return reservedId != null ? reservedId : super.generate(session, object);
+  }
+}
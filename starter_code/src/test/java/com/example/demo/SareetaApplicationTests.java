@@ -1,17 +1,61 @@
 package com.example.demo;
 
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.support.CatalogVersion;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class SareetaApplicationTests {
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private CatalogVersion catalogVersion;
 
   @Test
   public void contextLoads() {
   }
 
+  @Test
+  public void itemChange_changesCatalogVersion() {
+    Item item = new Item();
+    item.setName("Square Widget");
+    item.setPrice(new BigDecimal("3.99"));
+    item.setDescription("A widget that is square");
+
+    String eTag = catalogVersion.getETag();
+    item = itemRepository.save(item);
+    assertNotEquals(eTag, catalogVersion.getETag());
+
+    eTag = catalogVersion.getETag();
+    item.setPrice(new BigDecimal("4.99"));
+    item = itemRepository.save(item);
+    assertNotEquals(eTag, catalogVersion.getETag());
+
+    eTag = catalogVersion.getETag();
+    itemRepository.delete(item);
+    assertNotEquals(eTag, catalogVersion.getETag());
+  }
+
+  @Test
+  public void catalogVersion_derivedFromItems() {
+    // Items inserted with plain SQL by other tests only show up on the next refresh
+    catalogVersion.refresh();
+    String eTag = catalogVersion.getETag();
+    // What another node, or this one after a restart, computes for the same catalog
+    CatalogVersion other = new CatalogVersion(itemRepository, null, 0);
+    assertEquals(eTag, other.getETag());
+  }
+
 }
@@ -0,0 +1,119 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.TokenService;
+import com.example.demo.support.PersistenceExecutor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The endpoints with their handlers running on the persistence executor: every request starts async processing
+ * and its response is written on the async dispatch.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "app.web.execution-mode=async")
+@AutoConfigureMockMvc
+public class AsyncHandlerExecutionTest {
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private TokenService tokenService;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private PersistenceExecutor persistenceExecutor;
+
+  @Test
+  public void item_servedFromPersistenceExecutor() throws Exception {
+    User user = createUser("async_handler_item");
+    Item item = itemRepository.findByName("Round Widget").get(0);
+    long completed = persistenceExecutor.getCompletedCount();
+
+    performAsync(authenticated(get("/api/item/" + item.getId()), user))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.name").value("Round Widget"));
+    performAsync(authenticated(get("/api/item/-1"), user))
+        .andExpect(status().isNotFound());
+
+    assertTrue(persistenceExecutor.getCompletedCount() >= completed + 2);
+  }
+
+  @Test
+  public void items_notModified() throws Exception {
+    User user = createUser("async_handler_etag");
+    String eTag = performAsync(authenticated(get("/api/item"), user))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    performAsync(authenticated(get("/api/item"), user).header(HttpHeaders.IF_NONE_MATCH, eTag))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void cartAndOrder_lazyAssociationsLoadOnExecutorThread() throws Exception {
+    User user = createUser("async_handler_order");
+    Item item = itemRepository.findByName("Round Widget").get(0);
+    String request = "{\"username\":\"" + user.getUsername() + "\",\"itemId\":" + item.getId() + ",\"quantity\":2}";
+
+    performAsync(authenticated(post("/api/cart/addToCart"), user)
+        .contentType(MediaType.APPLICATION_JSON).content(request))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    performAsync(authenticated(post("/api/order/submit/" + user.getUsername()), user))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    performAsync(authenticated(get("/api/order/history/" + user.getUsername()), user))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].lines[0].quantity").value(2));
+    performAsync(authenticated(get("/api/user/" + user.getUsername()), user))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.RETRY_AFTER));
+  }
+
+  private ResultActions performAsync(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult result = mockMvc.perform(request)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(result));
+  }
+
+  private MockHttpServletRequestBuilder authenticated(MockHttpServletRequestBuilder request, User user) {
+    return request.header(AppConstant.AUTHORIZATION_HEADER, AppConstant.BEARER_HEADER + tokenService.createToken(
+        new AuthenticatedUser(user.getUsername(), user.getId(), user.getCart().getId())));
+  }
+
+  private User createUser(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    return userRepository.save(user);
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.CartStore;
+import com.example.demo.service.TokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Submits an order through the queue, together with the write-behind cart store so that neither the cart
+ * changes nor the submission commit on the request thread.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"app.order.submit-mode=async", "app.cart.store=write-behind"})
+@AutoConfigureMockMvc
+public class AsyncOrderSubmissionTest {
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private TokenService tokenService;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private CartStore cartStore;
+
+  @Test
+  public void submit_acceptedAndWrittenInBackground() throws Exception {
+    User user = createUser("async_submit_user");
+    Item item = itemRepository.findByName("Round Widget").get(0);
+    String request = "{\"username\":\"" + user.getUsername() + "\",\"itemId\":" + item.getId() + ",\"quantity\":2}";
+    mockMvc.perform(authenticated(post("/api/cart/addToCart"), user)
+        .contentType(MediaType.APPLICATION_JSON).content(request))
+        .andExpect(status().isOk());
+
+    MockHttpServletResponse response = mockMvc.perform(authenticated(post("/api/order/submit/" + user.getUsername()), user))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.status").value("QUEUED"))
+        .andReturn().getResponse();
+
+    OrderSubmissionView submission = awaitWritten(response.getHeader("Location"), user);
+    assertEquals(OrderSubmissionView.Status.COMPLETED, submission.getStatus());
+    // Written under the id reserved when it was submitted
+    assertEquals(submission.getId(), submission.getOrderId());
+    mockMvc.perform(authenticated(get("/api/order/history/" + user.getUsername()), user))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].id").value(submission.getOrderId()))
+        .andExpect(jsonPath("$[0].lines[0].quantity").value(2));
+    mockMvc.perform(authenticated(post("/api/order/submit/" + user.getUsername()), user))
+        .andExpect(status().isBadRequest());
+    cartStore.flushAll();
+    assertTrue(cartRepository.findWithLinesById(user.getCart().getId()).getLines().isEmpty());
+  }
+
+  @Test
+  public void submission_unknownId() throws Exception {
+    User user = createUser("async_unknown_user");
+    mockMvc.perform(authenticated(get("/api/order/submission/999999"), user))
+        .andExpect(status().isNotFound());
+  }
+
+  private OrderSubmissionView awaitWritten(String location, User user) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (true) {
+      String body = mockMvc.perform(authenticated(get(location), user))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+      OrderSubmissionView submission = objectMapper.readValue(body, OrderSubmissionView.class);
+      if (submission.getStatus() != OrderSubmissionView.Status.QUEUED || System.currentTimeMillis() > deadline) {
+        return submission;
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private MockHttpServletRequestBuilder authenticated(MockHttpServletRequestBuilder request, User user) {
+    return request.header(AppConstant.AUTHORIZATION_HEADER, AppConstant.BEARER_HEADER + tokenService.createToken(
+        new AuthenticatedUser(user.getUsername(), user.getId(), user.getCart().getId())));
+  }
+
+  private User createUser(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    return userRepository.save(user);
+  }
+}
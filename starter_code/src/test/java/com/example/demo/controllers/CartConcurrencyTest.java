@@ -0,0 +1,228 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderLineRow;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.CartStore;
+import com.example.demo.service.TokenService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Hammers the cart endpoints from many threads and checks that no update is lost: quantities and totals in the
+ * database must add up to exactly what the requests asked for.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CartConcurrencyTest {
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 25;
+  private static final AtomicInteger USER_SEQUENCE = new AtomicInteger();
+
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private TokenService tokenService;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private OrderRepository orderRepository;
+  @Autowired
+  private CartStore cartStore;
+
+  private ExecutorService executor;
+  private Queue<String> failures;
+  private Item round;
+  private Item square;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(THREADS);
+    failures = new ConcurrentLinkedQueue<>();
+    round = itemRepository.findByName("Round Widget").get(0);
+    square = itemRepository.findByName("Square Widget").get(0);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void sameUser_concurrentAddAndRemove() throws Exception {
+    User user = createUser("stress_same_user");
+
+    run(THREADS, thread -> {
+      for (int i = 0; i < ROUNDS; i++) {
+        // Every remove follows an add of two by the same thread, so it never finds less than one in the cart
+        modify("/api/cart/addToCart", user, round, 2);
+        modify("/api/cart/removeFromCart", user, round, 1);
+        modify("/api/cart/addToCart", user, square, 1);
+      }
+    });
+
+    assertTrue(failures.toString(), failures.isEmpty());
+    // Carts held in memory by the write-behind store are compared in the database
+    cartStore.flushAll();
+    Cart cart = cartRepository.findWithLinesById(user.getCart().getId());
+    int expected = THREADS * ROUNDS;
+    assertEquals(expected, quantityOf(cart, round));
+    assertEquals(expected, quantityOf(cart, square));
+    assertAmount(round.getPrice().add(square.getPrice()).multiply(BigDecimal.valueOf(expected)), cart.getTotal());
+    assertAmount(sumOfLines(cart), cart.getTotal());
+  }
+
+  @Test
+  public void manyUsers_addWhileSubmitting() throws Exception {
+    int users = THREADS / 2;
+    List<User> accounts = new ArrayList<>();
+    for (int i = 0; i < users; i++) {
+      accounts.add(createUser("stress_submit_user_" + i));
+    }
+
+    // Per user, one thread fills the cart while another keeps checking it out
+    run(users * 2, thread -> {
+      User user = accounts.get(thread % users);
+      for (int i = 0; i < ROUNDS; i++) {
+        if (thread < users) {
+          modify("/api/cart/addToCart", user, round, 1);
+          modify("/api/cart/addToCart", user, square, 1);
+        } else {
+          String uri = "/api/order/submit/" + user.getUsername();
+          perform(post(uri), uri, user, HttpStatus.OK, HttpStatus.BAD_REQUEST);
+        }
+      }
+    });
+
+    assertTrue(failures.toString(), failures.isEmpty());
+    // Carts held in memory by the write-behind store are compared in the database
+    cartStore.flushAll();
+    for (User user : accounts) {
+      Cart cart = cartRepository.findWithLinesById(user.getCart().getId());
+      int ordered = 0;
+      BigDecimal orderedTotal = BigDecimal.ZERO;
+      Long orderId = null;
+      for (OrderLineRow row : orderRepository.findHistoryRows(user.getId(), 0L, Integer.MAX_VALUE)) {
+        if (!row.getOrderId().equals(orderId)) {
+          orderId = row.getOrderId();
+          orderedTotal = orderedTotal.add(row.getTotal());
+        }
+        ordered += row.getQuantity();
+      }
+      assertEquals(2 * ROUNDS, ordered + quantityOf(cart, round) + quantityOf(cart, square));
+      assertAmount(round.getPrice().add(square.getPrice()).multiply(BigDecimal.valueOf(ROUNDS)),
+          orderedTotal.add(cart.getTotal()));
+      assertAmount(sumOfLines(cart), cart.getTotal());
+    }
+  }
+
+  private void run(int threads, Worker worker) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      int thread = i;
+      futures.add(executor.submit(() -> {
+        start.await();
+        worker.run(thread);
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(2, TimeUnit.MINUTES);
+    }
+  }
+
+  private void modify(String uri, User user, Item item, int quantity) {
+    String body = "{\"username\":\"" + user.getUsername() + "\",\"itemId\":" + item.getId()
+        + ",\"quantity\":" + quantity + "}";
+    perform(post(uri).contentType(MediaType.APPLICATION_JSON).content(body), uri, user, HttpStatus.OK);
+  }
+
+  private void perform(MockHttpServletRequestBuilder request, String uri, User user, HttpStatus... expected) {
+    String token = tokenService.createToken(
+        new AuthenticatedUser(user.getUsername(), user.getId(), user.getCart().getId()));
+    int status;
+    try {
+      status = mockMvc.perform(request.header(AppConstant.AUTHORIZATION_HEADER, AppConstant.BEARER_HEADER + token))
+          .andReturn().getResponse().getStatus();
+    } catch (Exception e) {
+      // MockMvc rethrows what the application would have turned into a 500
+      failures.add(e.getClass().getSimpleName() + " from " + uri);
+      return;
+    }
+    for (HttpStatus accepted : expected) {
+      if (accepted.value() == status) {
+        return;
+      }
+    }
+    failures.add(status + " from " + uri);
+  }
+
+  private User createUser(String username) {
+    User user = new User();
+    // Subclasses run the same tests against the same database
+    user.setUsername(username + "_" + USER_SEQUENCE.incrementAndGet());
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    return userRepository.save(user);
+  }
+
+  private int quantityOf(Cart cart, Item item) {
+    return cart.getLines().stream()
+        .filter(line -> line.getItem().getId().equals(item.getId()))
+        .mapToInt(CartLine::getQuantity)
+        .sum();
+  }
+
+  private BigDecimal sumOfLines(Cart cart) {
+    return cart.getLines().stream().map(CartLine::getLineTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+
+  private void assertAmount(BigDecimal expected, BigDecimal actual) {
+    assertEquals(expected + " != " + actual, 0, expected.compareTo(actual));
+  }
+
+  private interface Worker {
+    void run(int thread);
+  }
+}
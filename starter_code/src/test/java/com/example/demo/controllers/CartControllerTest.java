@@ -1,81 +1,213 @@
 package com.example.demo.controllers;
 
+import com.example.demo.constant.AppConstant;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartBatchView;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.impl.JpaCartStore;
+import com.example.demo.support.CartLocks;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CartControllerTest {
   @InjectMocks
   private CartController cartController;
   @Mock
-  private UserRepository userRepository;
-  @Mock
   private CartRepository cartRepository;
   @Mock
   private ItemRepository itemRepository;
 
+  @Spy
+  private CartLocks cartLocks = new CartLocks(4);
+
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
+    ReflectionTestUtils.setField(cartController, "cartStore", new JpaCartStore(cartRepository));
   }
 
   @Test
   public void addCartItem_ok() {
     Cart cart = getNewCart();
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(getUser());
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(getUser().getCart());
     when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
     when(cartRepository.save(any(Cart.class))).thenReturn(cart);
 
-    ResponseEntity<Cart> response = cartController.addTocart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.addTocart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
 
     assertNotNull(response.getBody());
     assertEquals(cart.getId(), response.getBody().getId());
-    assertEquals(cart.getUser().getId(), response.getBody().getUser().getId());
-    assertEquals(1, response.getBody().getItems().size());
+    assertEquals(1, response.getBody().getLines().size());
+  }
+
+  @Test
+  public void addCartItem_bulkQuantityIsOneLine() {
+    User user = getUser();
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername(user.getUsername());
+    modifyCartRequest.setQuantity(1000);
+
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ResponseEntity<CartView> response = cartController.addTocart(modifyCartRequest, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(1, response.getBody().getLines().size());
+    assertEquals(1000, response.getBody().getLines().get(0).getQuantity());
+    assertEquals(new BigDecimal(1000), response.getBody().getTotal());
+    assertEquals(new BigDecimal(1000), response.getBody().getLines().get(0).getLineTotal());
+  }
+
+  @Test
+  public void removeCartItem_partialQuantity() {
+    User user = getUser();
+    user.getCart().addItem(getItem(), 5);
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername(user.getUsername());
+    modifyCartRequest.setQuantity(2);
+
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ResponseEntity<CartView> response = cartController.removeFromcart(modifyCartRequest, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(3, response.getBody().getLines().get(0).getQuantity());
+    assertEquals(new BigDecimal(3), response.getBody().getTotal());
+
+    modifyCartRequest.setQuantity(10);
+    response = cartController.removeFromcart(modifyCartRequest, null);
+    assertEquals(0, response.getBody().getLines().size());
+    assertEquals(new BigDecimal(0), response.getBody().getTotal());
+  }
+
+  @Test
+  public void modifyCartItem_invalidQuantity() {
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername("new_user");
+    modifyCartRequest.setQuantity(0);
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.addTocart(modifyCartRequest, null).getStatusCode());
+
+    modifyCartRequest.setQuantity(-1);
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.removeFromcart(modifyCartRequest, null).getStatusCode());
+    verify(itemRepository, never()).findById(anyLong());
+    verify(cartRepository, never()).save(any(Cart.class));
+  }
+
+  @Test
+  public void addCartItem_exceedsMaximumLineQuantity() {
+    User user = getUser();
+    user.getCart().addItem(getItem(), AppConstant.MAX_CART_LINE_QUANTITY - 1);
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername(user.getUsername());
+    modifyCartRequest.setQuantity(Integer.MAX_VALUE);
+
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.addTocart(modifyCartRequest, null).getStatusCode());
+    assertEquals(AppConstant.MAX_CART_LINE_QUANTITY - 1, user.getCart().getLines().get(0).getQuantity());
+    verify(cartRepository, never()).save(any(Cart.class));
+
+    modifyCartRequest.setQuantity(1);
+    ResponseEntity<CartView> response = cartController.addTocart(modifyCartRequest, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(AppConstant.MAX_CART_LINE_QUANTITY, response.getBody().getLines().get(0).getQuantity());
+  }
+
+  @Test
+  public void addCartItem_principalLoadsCartById() {
+    User user = getUser();
+    user.getCart().setId(5L);
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername(user.getUsername());
+    modifyCartRequest.setQuantity(1);
+
+    when(cartRepository.findWithLinesById(5L)).thenReturn(user.getCart());
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ResponseEntity<CartView> response =
+        cartController.addTocart(modifyCartRequest, new AuthenticatedUser(user.getUsername(), user.getId(), 5L));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(Long.valueOf(5L), response.getBody().getId());
+    verify(cartRepository, never()).findWithLinesByUsername(anyString());
+  }
+
+  @Test
+  public void addCartItem_otherUsersCartIsLookedUpByUsername() {
+    User user = getUser();
+    ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
+    modifyCartRequest.setItemId(1L);
+    modifyCartRequest.setUsername(user.getUsername());
+    modifyCartRequest.setQuantity(1);
+
+    when(cartRepository.findWithLinesByUsername(user.getUsername())).thenReturn(user.getCart());
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ResponseEntity<CartView> response =
+        cartController.addTocart(modifyCartRequest, new AuthenticatedUser("other_user", 2L, 6L));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(cartRepository, never()).findWithLinesById(anyLong());
   }
 
   @Test
   public void addCartItem_usernameNotFound() {
     Cart cart = getNewCart();
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(null);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(null);
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
 
-    ResponseEntity<Cart> response = cartController.addTocart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.addTocart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
@@ -84,14 +216,14 @@ public class CartControllerTest {
   public void addCartItem_itemNotFound() {
     Cart cart = getNewCart();
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(getUser());
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(getUser().getCart());
     when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
 
-    ResponseEntity<Cart> response = cartController.addTocart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.addTocart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
@@ -102,24 +234,23 @@ public class CartControllerTest {
     Cart cart = getNewCart();
     user.setCart(cart);
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(user);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
     when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
     Cart result = user.getCart();
-    result.setItems(Collections.emptyList());
+    result.clear();
     when(cartRepository.save(any(Cart.class))).thenReturn(result);
 
-    ResponseEntity<Cart> response = cartController.removeFromcart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.removeFromcart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
 
     assertNotNull(response.getBody());
     assertEquals(cart.getId(), response.getBody().getId());
-    assertEquals(cart.getUser().getId(), response.getBody().getUser().getId());
-    assertEquals(0, response.getBody().getItems().size());
+    assertEquals(0, response.getBody().getLines().size());
   }
 
   @Test
@@ -128,13 +259,14 @@ public class CartControllerTest {
     Cart cart = getNewCart();
     user.setCart(cart);
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(null);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(null);
+    when(itemRepository.findById(anyLong())).thenReturn(Optional.of(getItem()));
 
-    ResponseEntity<Cart> response = cartController.removeFromcart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.removeFromcart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
@@ -145,25 +277,115 @@ public class CartControllerTest {
     Cart cart = getNewCart();
     user.setCart(cart);
     ModifyCartRequest modifyCartRequest = new ModifyCartRequest();
-    modifyCartRequest.setItemId(cart.getItems().get(0).getId());
+    modifyCartRequest.setItemId(cart.getLines().get(0).getItem().getId());
     modifyCartRequest.setUsername(cart.getUser().getUsername());
     modifyCartRequest.setQuantity(1);
 
-    when(userRepository.findByUsername(anyString())).thenReturn(user);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
     when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
 
-    ResponseEntity<Cart> response = cartController.removeFromcart(modifyCartRequest);
+    ResponseEntity<CartView> response = cartController.removeFromcart(modifyCartRequest, null);
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void modifyCart_batchAppliedWithOneSave() {
+    User user = getUser();
+    Item other = getItem();
+    other.setId(2L);
+    other.setPrice(new BigDecimal(3));
+    ModifyCartBatchRequest request = getBatchRequest(user.getUsername(),
+        getOperation(CartOperation.Action.ADD, 1L, 4),
+        getOperation(CartOperation.Action.ADD, 2L, 1),
+        getOperation(CartOperation.Action.REMOVE, 1L, 1),
+        getOperation(CartOperation.Action.ADD, 3L, 1));
+
+    when(itemRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(getItem(), other));
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ResponseEntity<CartBatchView> response = cartController.modifyCart(request, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    CartBatchView body = response.getBody();
+    assertEquals(2, body.getCart().getLines().size());
+    assertEquals(3, body.getCart().getLines().get(0).getQuantity());
+    assertEquals(new BigDecimal(6), body.getCart().getTotal());
+    assertEquals(4, body.getResults().size());
+    assertEquals(HttpStatus.OK.value(), body.getResults().get(2).getStatus());
+    assertEquals(HttpStatus.NOT_FOUND.value(), body.getResults().get(3).getStatus());
+    verify(itemRepository).findAllById(anyCollection());
+    verify(itemRepository, never()).findById(anyLong());
+    verify(cartRepository).save(any(Cart.class));
+  }
+
+  @Test
+  public void modifyCart_batchSkipsOperationOverMaximumLineQuantity() {
+    User user = getUser();
+    ModifyCartBatchRequest request = getBatchRequest(user.getUsername(),
+        getOperation(CartOperation.Action.ADD, 1L, AppConstant.MAX_CART_LINE_QUANTITY),
+        getOperation(CartOperation.Action.ADD, 1L, 1),
+        getOperation(CartOperation.Action.REMOVE, 1L, 1));
+
+    when(itemRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(getItem()));
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    CartBatchView body = cartController.modifyCart(request, null).getBody();
+    assertEquals(AppConstant.MAX_CART_LINE_QUANTITY - 1, body.getCart().getLines().get(0).getQuantity());
+    assertEquals(HttpStatus.OK.value(), body.getResults().get(0).getStatus());
+    assertEquals(HttpStatus.BAD_REQUEST.value(), body.getResults().get(1).getStatus());
+    assertEquals(HttpStatus.OK.value(), body.getResults().get(2).getStatus());
+  }
+
+  @Test
+  public void modifyCart_batchUsernameNotFound() {
+    ModifyCartBatchRequest request = getBatchRequest("new_user", getOperation(CartOperation.Action.ADD, 1L, 1));
+
+    when(itemRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(getItem()));
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(null);
+
+    ResponseEntity<CartBatchView> response = cartController.modifyCart(request, null);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    verify(cartRepository, never()).save(any(Cart.class));
+  }
+
+  @Test
+  public void modifyCart_invalidBatch() {
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.modifyCart(getBatchRequest("new_user"), null).getStatusCode());
+
+    CartOperation[] tooMany = new CartOperation[AppConstant.MAX_CART_BATCH_SIZE + 1];
+    Arrays.fill(tooMany, getOperation(CartOperation.Action.ADD, 1L, 1));
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.modifyCart(getBatchRequest("new_user", tooMany), null)
+        .getStatusCode());
+
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.modifyCart(
+        getBatchRequest("new_user", getOperation(null, 1L, 1)), null).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, cartController.modifyCart(
+        getBatchRequest("new_user", getOperation(CartOperation.Action.ADD, 1L, 0)), null).getStatusCode());
+    verify(cartRepository, never()).save(any(Cart.class));
+  }
+
+  private ModifyCartBatchRequest getBatchRequest(String username, CartOperation... operations) {
+    ModifyCartBatchRequest request = new ModifyCartBatchRequest();
+    request.setUsername(username);
+    request.setOperations(Arrays.asList(operations));
+    return request;
+  }
+
+  private CartOperation getOperation(CartOperation.Action action, long itemId, int quantity) {
+    CartOperation operation = new CartOperation();
+    operation.setAction(action);
+    operation.setItemId(itemId);
+    operation.setQuantity(quantity);
+    return operation;
+  }
+
   private Cart getNewCart() {
     Cart cart = new Cart();
     cart.setId(1L);
     cart.setUser(getUser());
-    List<Item> items = new ArrayList<>();
-    items.add(getItem());
-    cart.setItems(items);
+    cart.addItem(getItem());
     cart.setTotal(new BigDecimal(1));
     return cart;
   }
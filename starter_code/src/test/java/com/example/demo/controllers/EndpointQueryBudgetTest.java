@@ -0,0 +1,194 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.TokenService;
+import com.example.demo.support.sql.QueryBudget;
+import com.example.demo.support.sql.QueryBudgetConfig;
+import com.example.demo.support.sql.QueryBudgetRule;
+import com.example.demo.support.sql.StatementRecorder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the endpoints against the real persistence layer and fails when a request sends more statements than its
+ * budget, which catches N+1 selects and eager loading that the mocked controller tests can not see.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryBudgetConfig.class)
+public class EndpointQueryBudgetTest {
+  private static final int ORDER_COUNT = 5;
+
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private StatementRecorder statementRecorder;
+  @Autowired
+  private TokenService tokenService;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Rule
+  public QueryBudgetRule queryBudget = new QueryBudgetRule(() -> statementRecorder);
+
+  private Item item;
+
+  @Before
+  public void setUp() {
+    item = itemRepository.findByName("Round Widget").get(0);
+  }
+
+  @Test
+  @QueryBudget(3)
+  public void createUser() throws Exception {
+    mockMvc.perform(post("/api/user/create")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"username\":\"budget_create\",\"password\":\"password1\",\"confirmPassword\":\"password1\"}"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  @QueryBudget(1)
+  public void findUser() throws Exception {
+    User user = createUser("budget_find");
+    perform(get("/api/user/" + user.getUsername()), user);
+    perform(get("/api/user/id/" + user.getId()), user);
+  }
+
+  @Test
+  @QueryBudget(1)
+  public void getItems() throws Exception {
+    User user = createUser("budget_items");
+    perform(get("/api/item"), user);
+    perform(get("/api/item/" + item.getId()), user);
+    perform(get("/api/item/name/" + item.getName()), user);
+    perform(get("/api/item/search").param("q", "wid"), user);
+  }
+
+  @Test
+  @QueryBudget(3)
+  public void modifyCart() throws Exception {
+    User user = createUser("budget_cart");
+    String request = "{\"username\":\"" + user.getUsername() + "\",\"itemId\":" + item.getId() + ",\"quantity\":2}";
+    perform(post("/api/cart/addToCart").contentType(MediaType.APPLICATION_JSON).content(request), user);
+    perform(post("/api/cart/removeFromCart").contentType(MediaType.APPLICATION_JSON).content(request), user);
+  }
+
+  // Items, cart, one insert per new line and the cart update, however many operations the batch has
+  @Test
+  @QueryBudget(5)
+  public void modifyCartBatch() throws Exception {
+    User user = createUser("budget_cart_batch");
+    Item other = itemRepository.findByName("Square Widget").get(0);
+    StringBuilder operations = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      operations.append(i == 0 ? "" : ",").append("{\"action\":\"").append(i % 5 == 4 ? "remove" : "add")
+          .append("\",\"itemId\":").append(i % 2 == 0 ? item.getId() : other.getId()).append(",\"quantity\":1}");
+    }
+    String request = "{\"username\":\"" + user.getUsername() + "\",\"operations\":[" + operations + "]}";
+    perform(post("/api/cart/batch").contentType(MediaType.APPLICATION_JSON).content(request), user);
+  }
+
+  @Test
+  @QueryBudget(5)
+  public void submitOrder() throws Exception {
+    User user = createUser("budget_submit");
+    Cart cart = user.getCart();
+    cart.addItem(item, 3);
+    cartRepository.save(cart);
+
+    perform(post("/api/order/submit/" + user.getUsername()), user);
+  }
+
+  @Test
+  @QueryBudget(5)
+  public void submitOrder_retriedWithIdempotencyKey() throws Exception {
+    User user = createUser("budget_submit_retry");
+    Cart cart = user.getCart();
+    cart.addItem(item, 1);
+    cartRepository.save(cart);
+
+    for (int i = 0; i < 3; i++) {
+      perform(post("/api/order/submit/" + user.getUsername()).header(AppConstant.IDEMPOTENCY_KEY_HEADER, "retry"), user);
+    }
+    List<StatementRecorder.RecordedRequest> requests = statementRecorder.getRequests();
+    // Only the first attempt touches the database, the retries are answered from memory
+    assertTrue(requests.get(requests.size() - 1).getStatements().isEmpty());
+    assertTrue(requests.get(requests.size() - 2).getStatements().isEmpty());
+  }
+
+  @Test
+  @QueryBudget(1)
+  public void orderHistory() throws Exception {
+    User user = createUserWithOrders("budget_history");
+    perform(get("/api/order/history/" + user.getUsername()), user);
+    perform(get("/api/order/history/" + user.getUsername()).param("size", "2"), user);
+  }
+
+  @Test
+  @QueryBudget(1)
+  public void exportOrders() throws Exception {
+    User user = createUserWithOrders("budget_export");
+    perform(get("/api/order/export/" + user.getUsername()), user);
+  }
+
+  private void perform(MockHttpServletRequestBuilder request, User user) throws Exception {
+    RequestBuilder authenticated = request.header(AppConstant.AUTHORIZATION_HEADER,
+        AppConstant.BEARER_HEADER + tokenService.createToken(
+            new AuthenticatedUser(user.getUsername(), user.getId(), user.getCart().getId())));
+    mockMvc.perform(authenticated).andExpect(status().isOk());
+  }
+
+  private User createUser(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    return userRepository.save(user);
+  }
+
+  private User createUserWithOrders(String username) {
+    User user = createUser(username);
+    Cart cart = user.getCart();
+    cart.setUser(user);
+    cart.addItem(item, 1);
+    for (int i = 0; i < ORDER_COUNT; i++) {
+      orderRepository.save(UserOrder.createFromCart(cart));
+    }
+    return user;
+  }
+}
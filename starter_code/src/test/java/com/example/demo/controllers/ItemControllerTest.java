@@ -1,14 +1,26 @@
 package com.example.demo.controllers;
 
+import com.example.demo.constant.AppConstant;
+import com.example.demo.event.ItemChangedEvent;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.support.CatalogVersion;
+import com.example.demo.support.ItemSearchIndex;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
 import java.util.Collections;
@@ -17,8 +29,13 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ItemControllerTest {
@@ -26,22 +43,62 @@ public class ItemControllerTest {
   private ItemController itemController;
   @Mock
   private ItemRepository itemRepository;
+  @Mock
+  private ItemSearchIndex itemSearchIndex;
+
+  private CatalogVersion catalogVersion;
 
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
+    ItemRepository.CatalogState state = getCatalogState(2L, 2L, 0L);
+    when(itemRepository.findCatalogState()).thenReturn(state);
+    catalogVersion = new CatalogVersion(itemRepository, null, 0);
+    ReflectionTestUtils.setField(itemController, "catalogVersion", catalogVersion);
   }
 
   @Test
   public void getListItem_ok() {
     List<Item> itemList = Collections.singletonList(getNewItem());
-    when(itemRepository.findAll()).thenReturn(itemList);
-    ResponseEntity<List<Item>> response = itemController.getItems();
+    Pageable pageable = PageRequest.of(0, 20);
+    when(itemRepository.findAll(pageable)).thenReturn(new PageImpl<>(itemList, pageable, 1));
+    ResponseEntity<List<Item>> response = itemController.getItems(pageable, getRequest());
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
 
     assertNotNull(response.getBody());
     assertEquals(1, response.getBody().size());
+    assertEquals(catalogVersion.getETag(), response.getHeaders().getETag());
+    assertEquals("1", response.getHeaders().getFirst(AppConstant.TOTAL_COUNT_HEADER));
+  }
+
+  @Test
+  public void getListItem_notModified() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, catalogVersion.getETag());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertNull(itemController.getItems(PageRequest.of(0, 20), new ServletWebRequest(request, response)));
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    verify(itemRepository, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getListItem_modifiedAfterItemChange() {
+    String eTag = catalogVersion.getETag();
+    ItemRepository.CatalogState changed = getCatalogState(2L, 2L, 1L);
+    when(itemRepository.findCatalogState()).thenReturn(changed);
+    catalogVersion.onItemChanged(new ItemChangedEvent(getNewItem(), ItemChangedEvent.Type.UPDATED));
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+    Pageable pageable = PageRequest.of(0, 20);
+    when(itemRepository.findAll(pageable)).thenReturn(new PageImpl<>(Collections.emptyList(), pageable, 0));
+
+    ResponseEntity<List<Item>> response =
+        itemController.getItems(pageable, new ServletWebRequest(request, new MockHttpServletResponse()));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"2-2-1\"", response.getHeaders().getETag());
   }
 
   @Test
@@ -87,6 +144,24 @@ public class ItemControllerTest {
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void searchItems_ok() {
+    when(itemSearchIndex.search("java co", 100)).thenReturn(Collections.singletonList(getNewItem()));
+    ResponseEntity<List<Item>> response = itemController.searchItems("java co", 1000);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(1, response.getBody().size());
+  }
+
+  @Test
+  public void searchItems_blankQuery() {
+    ResponseEntity<List<Item>> response = itemController.searchItems(" ", 10);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  private ServletWebRequest getRequest() {
+    return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/item"), new MockHttpServletResponse());
+  }
+
   private Item getNewItem() {
     Item item = new Item();
     item.setId(1L);
@@ -95,4 +170,12 @@ public class ItemControllerTest {
     item.setDescription("Java Core book");
     return item;
   }
+
+  private ItemRepository.CatalogState getCatalogState(Long count, Long maxId, Long revisions) {
+    ItemRepository.CatalogState state = mock(ItemRepository.CatalogState.class);
+    when(state.getCount()).thenReturn(count);
+    when(state.getMaxId()).thenReturn(maxId);
+    when(state.getRevisions()).thenReturn(revisions);
+    return state;
+  }
 }
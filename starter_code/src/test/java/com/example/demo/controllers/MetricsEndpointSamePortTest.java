@@ -0,0 +1,42 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.TokenService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Without a separate management port actuator shares the application port, where only health is open.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "management.server.port=")
+@AutoConfigureMockMvc
+public class MetricsEndpointSamePortTest {
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private TokenService tokenService;
+
+  @Test
+  public void health_openWithoutToken() throws Exception {
+    mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+  }
+
+  @Test
+  public void prometheus_requiresToken() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    String token = AppConstant.BEARER_HEADER
+        + tokenService.createToken(new AuthenticatedUser("metrics_scraper", 1L, 1L));
+    mockMvc.perform(get("/actuator/prometheus").header(AppConstant.AUTHORIZATION_HEADER, token))
+        .andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.controllers;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.TokenService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "management.server.port=0")
+public class MetricsEndpointTest {
+  @Autowired
+  private TestRestTemplate restTemplate;
+  @Autowired
+  private TokenService tokenService;
+  @Autowired
+  private UserRepository userRepository;
+  @LocalManagementPort
+  private int managementPort;
+
+  @Test
+  public void prometheus_scrapedWithoutTokenOnManagementPort() {
+    User user = new User();
+    user.setUsername("metrics_user");
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    userRepository.save(user);
+    HttpHeaders tokenHeaders = new HttpHeaders();
+    tokenHeaders.set(AppConstant.AUTHORIZATION_HEADER, AppConstant.BEARER_HEADER + tokenService.createToken(
+        new AuthenticatedUser(user.getUsername(), user.getId(), user.getCart().getId())));
+    assertEquals(HttpStatus.NOT_FOUND, restTemplate.exchange("/api/item/-1", HttpMethod.GET,
+        new HttpEntity<>(tokenHeaders), String.class).getStatusCode());
+    HttpHeaders jsonHeaders = new HttpHeaders();
+    jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+    assertEquals(HttpStatus.OK, restTemplate.postForEntity("/api/user/create", new HttpEntity<>(
+        "{\"username\":\"metrics_created\",\"password\":\"password1\",\"confirmPassword\":\"password1\"}",
+        jsonHeaders), String.class).getStatusCode());
+
+    ResponseEntity<String> response = restTemplate.getForEntity(
+        "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    String body = response.getBody();
+    assertThat(body, containsString("http_server_requests_seconds_bucket{"));
+    assertThat(body, containsString("status=\"404\",uri=\"/api/item/{id}\""));
+    assertThat(body, containsString(
+        "repository_invocations_seconds_count{application=\"sareeta\",exception=\"none\",method=\"findById\","
+            + "outcome=\"SUCCESS\",repository=\"ItemRepository\",}"));
+    assertThat(body, containsString("jwt_sign_seconds_count"));
+    assertThat(body, containsString("jwt_verify_seconds_bucket"));
+    assertThat(body, containsString("password_hashing_seconds_count{application=\"sareeta\","
+        + "exception=\"none\",operation=\"encode\",outcome=\"SUCCESS\",}"));
+    assertThat(body, containsString("hikaricp_connections_acquire_seconds_bucket"));
+    assertThat(body, containsString("password_hashing_executor_busy_seconds_total"));
+    assertThat(body, containsString("token_cache_requests_total"));
+    assertThat(body, containsString("cart_locks_contended_total"));
+  }
+
+  @Test
+  public void actuator_notServedOnApplicationPort() {
+    assertEquals(HttpStatus.UNAUTHORIZED,
+        restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode());
+  }
+}
@@ -1,28 +1,52 @@
 package com.example.demo.controllers;
 
+import com.example.demo.constant.AppConstant;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.service.CartStore;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderSubmissionService;
+import com.example.demo.support.CartLocks;
+import com.example.demo.support.IdempotencyCache;
+import com.example.demo.support.KeysetCursor;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderControllerTest {
@@ -31,7 +55,16 @@ public class OrderControllerTest {
   @Mock
   private UserRepository userRepository;
   @Mock
-  private OrderRepository orderRepository;
+  private CartRepository cartRepository;
+  @Mock
+  private OrderService orderService;
+  @Mock
+  private CartStore cartStore;
+
+  @Spy
+  private CartLocks cartLocks = new CartLocks(4);
+  @Spy
+  private IdempotencyCache idempotencyCache = new IdempotencyCache(100, 60000, 5000);
 
   @Before
   public void setUp() {
@@ -44,17 +77,34 @@ public class OrderControllerTest {
     user.setCart(getCart());
     UserOrder order = UserOrder.createFromCart(user.getCart());
     order.setId(1L);
-    when(userRepository.findByUsername(anyString())).thenReturn(user);
-    when(orderRepository.save(any(UserOrder.class))).thenReturn(order);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(orderService.checkout(any(User.class))).thenReturn(order);
 
-    ResponseEntity<UserOrder> response = orderController.submit(user.getUsername());
+    ResponseEntity<?> response = orderController.submit(user.getUsername(), null, null);
 
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
 
-    assertNotNull(response.getBody());
-    assertEquals(order.getId(), response.getBody().getId());
-    assertEquals(order.getUser().getId(), response.getBody().getUser().getId());
+    OrderView body = (OrderView) response.getBody();
+    assertNotNull(body);
+    assertEquals(order.getId(), body.getId());
+    assertEquals(order.getTotal(), body.getTotal());
+    assertEquals(1, body.getLines().size());
+    verify(orderService).checkout(user.getCart().getUser());
+    verify(cartStore).flush(user.getUsername());
+    verify(cartStore).evict(user.getUsername());
+  }
+
+  @Test
+  public void submitOrder_emptyCart() {
+    User user = getUser();
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+
+    ResponseEntity<?> response = orderController.submit(user.getUsername(), null, null);
+
+    assertNotNull(response);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    verify(orderService, never()).checkout(any(User.class));
   }
 
   @Test
@@ -63,14 +113,112 @@ public class OrderControllerTest {
     user.setCart(getCart());
     UserOrder order = UserOrder.createFromCart(user.getCart());
     order.setId(1L);
-    when(userRepository.findByUsername(anyString())).thenReturn(null);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(null);
 
-    ResponseEntity<UserOrder> response = orderController.submit(user.getUsername());
+    ResponseEntity<?> response = orderController.submit(user.getUsername(), null, null);
 
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void submitOrder_idempotencyKeyReplaysFirstResponse() {
+    User user = getUser();
+    user.setCart(getCart());
+    UserOrder order = UserOrder.createFromCart(user.getCart());
+    order.setId(1L);
+    when(cartRepository.findWithLinesByUsername(anyString())).thenReturn(user.getCart());
+    when(orderService.checkout(any(User.class))).thenReturn(order);
+
+    ResponseEntity<?> first = orderController.submit(user.getUsername(), "retry-1", null);
+    ResponseEntity<?> retry = orderController.submit(user.getUsername(), "retry-1", null);
+
+    assertEquals(HttpStatus.OK, retry.getStatusCode());
+    assertEquals(first.getBody(), retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(AppConstant.IDEMPOTENT_REPLAYED_HEADER));
+    assertNull(first.getHeaders().getFirst(AppConstant.IDEMPOTENT_REPLAYED_HEADER));
+    verify(orderService, times(1)).checkout(any(User.class));
+
+    orderController.submit(user.getUsername(), "retry-2", null);
+    orderController.submit("other_user", "retry-1", null);
+    verify(orderService, times(3)).checkout(any(User.class));
+  }
+
+  @Test
+  public void submitOrder_invalidIdempotencyKey() {
+    ResponseEntity<?> response = orderController.submit("new_user", "", null);
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    verify(cartRepository, never()).findWithLinesByUsername(anyString());
+  }
+
+  @Test
+  public void submitOrder_asyncAccepted() {
+    OrderSubmissionService orderSubmissionService = mock(OrderSubmissionService.class);
+    ReflectionTestUtils.setField(orderController, "orderSubmissionService", orderSubmissionService);
+    OrderSubmissionView submission = new OrderSubmissionView(51L, OrderSubmissionView.Status.QUEUED, null);
+    when(orderSubmissionService.submit("new_user", 7L, 9L)).thenReturn(submission);
+
+    ResponseEntity<?> response = orderController.submit("new_user", null, new AuthenticatedUser("new_user", 7L, 9L));
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals("/api/order/submission/51", response.getHeaders().getLocation().toString());
+    assertEquals(submission, response.getBody());
+    verify(orderService, never()).checkout(any(User.class));
+  }
+
+  @Test
+  public void submitOrder_asyncQueueFull() {
+    OrderSubmissionService orderSubmissionService = mock(OrderSubmissionService.class);
+    ReflectionTestUtils.setField(orderController, "orderSubmissionService", orderSubmissionService);
+    when(orderSubmissionService.submit(anyString(), anyLong(), any())).thenThrow(new RejectedExecutionException());
+
+    ResponseEntity<?> response = orderController.submit("new_user", null, new AuthenticatedUser("new_user", 7L, 9L));
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+  }
+
+  @Test
+  public void submitOrder_asyncEarlierOrderPending() {
+    OrderSubmissionService orderSubmissionService = mock(OrderSubmissionService.class);
+    ReflectionTestUtils.setField(orderController, "orderSubmissionService", orderSubmissionService);
+    when(orderSubmissionService.submit(anyString(), anyLong(), any())).thenThrow(new IllegalStateException());
+
+    ResponseEntity<?> response = orderController.submit("new_user", null, new AuthenticatedUser("new_user", 7L, 9L));
+
+    assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+  }
+
+  @Test
+  public void submitOrder_asyncEmptyCart() {
+    OrderSubmissionService orderSubmissionService = mock(OrderSubmissionService.class);
+    ReflectionTestUtils.setField(orderController, "orderSubmissionService", orderSubmissionService);
+
+    ResponseEntity<?> response = orderController.submit("new_user", null, new AuthenticatedUser("new_user", 7L, 9L));
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  @Test
+  public void getSubmission_notFoundWhenSynchronous() {
+    assertEquals(HttpStatus.NOT_FOUND,
+        orderController.getSubmission(51L, new AuthenticatedUser("new_user", 7L, 9L)).getStatusCode());
+  }
+
+  @Test
+  public void getSubmission_ofAnotherUser() {
+    OrderSubmissionService orderSubmissionService = mock(OrderSubmissionService.class);
+    ReflectionTestUtils.setField(orderController, "orderSubmissionService", orderSubmissionService);
+    when(orderSubmissionService.find(51L, "new_user"))
+        .thenReturn(new OrderSubmissionView(51L, OrderSubmissionView.Status.QUEUED, null));
+
+    assertEquals(HttpStatus.OK,
+        orderController.getSubmission(51L, new AuthenticatedUser("new_user", 7L, 9L)).getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND,
+        orderController.getSubmission(51L, new AuthenticatedUser("other_user", 8L, 10L)).getStatusCode());
+  }
+
   @Test
   public void historyOrder_ok() {
     User user = getUser();
@@ -78,9 +226,10 @@ public class OrderControllerTest {
     UserOrder order = UserOrder.createFromCart(user.getCart());
     order.setId(1L);
     when(userRepository.findByUsername(anyString())).thenReturn(user);
-    when(orderRepository.findByUser(any(User.class))).thenReturn(Collections.singletonList(order));
+    when(orderService.findHistory(anyLong(), anyLong(), anyInt()))
+        .thenReturn(Collections.singletonList(OrderView.from(order)));
 
-    ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(user.getUsername());
+    ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser(user.getUsername(), null, 20, null);
 
     assertNotNull(response);
     assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -89,6 +238,56 @@ public class OrderControllerTest {
     assertEquals(1, response.getBody().size());
   }
 
+  @Test
+  public void historyOrder_nextCursor() {
+    User user = getUser();
+    List<OrderView> orders = new ArrayList<>();
+    for (long id = 11; id <= 13; id++) {
+      orders.add(new OrderView(id, BigDecimal.ONE, Collections.emptyList()));
+    }
+    when(userRepository.findByUsername(anyString())).thenReturn(user);
+    when(orderService.findHistory(user.getId(), 10L, 3)).thenReturn(orders);
+
+    ResponseEntity<List<OrderView>> response =
+        orderController.getOrdersForUser(user.getUsername(), KeysetCursor.encode(10L), 2, null);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(2, response.getBody().size());
+    String nextCursor = response.getHeaders().getFirst(AppConstant.NEXT_CURSOR_HEADER);
+    assertEquals(12L, KeysetCursor.decode(nextCursor));
+  }
+
+  @Test
+  public void historyOrder_lastPageHasNoCursor() {
+    User user = getUser();
+    when(userRepository.findByUsername(anyString())).thenReturn(user);
+    when(orderService.findHistory(user.getId(), 0L, 101)).thenReturn(Collections.emptyList());
+
+    ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser(user.getUsername(), null, 1000, null);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getFirst(AppConstant.NEXT_CURSOR_HEADER));
+  }
+
+  @Test
+  public void historyOrder_principalSkipsUserLookup() {
+    when(orderService.findHistory(7L, 0L, 21)).thenReturn(Collections.emptyList());
+
+    ResponseEntity<List<OrderView>> response =
+        orderController.getOrdersForUser("new_user", null, 20, new AuthenticatedUser("new_user", 7L, 9L));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(userRepository, never()).findByUsername(anyString());
+    verify(orderService).findHistory(7L, 0L, 21);
+  }
+
+  @Test
+  public void historyOrder_invalidCursor() {
+    ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser("new_user", "not a cursor", 20, null);
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
   @Test
   public void historyOrder_usernameNotFound() {
     User user = getUser();
@@ -97,19 +296,41 @@ public class OrderControllerTest {
     order.setId(1L);
     when(userRepository.findByUsername(anyString())).thenReturn(null);
 
-    ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(user.getUsername());
+    ResponseEntity<List<OrderView>> response = orderController.getOrdersForUser(user.getUsername(), null, 20, null);
 
     assertNotNull(response);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void exportOrders_ok() throws IOException {
+    User user = getUser();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(userRepository.findByUsername(anyString())).thenReturn(user);
+    when(orderService.exportOrders(eq(user.getId()), any(OutputStream.class))).thenReturn(0L);
+
+    orderController.exportOrdersForUser(user.getUsername(), null, response);
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(AppConstant.NDJSON_VALUE, response.getContentType());
+    verify(orderService).exportOrders(eq(user.getId()), any(OutputStream.class));
+  }
+
+  @Test
+  public void exportOrders_usernameNotFound() throws IOException {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(userRepository.findByUsername(anyString())).thenReturn(null);
+
+    orderController.exportOrdersForUser("new_user", null, response);
+
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+  }
+
   private Cart getCart() {
     Cart cart = new Cart();
     cart.setId(1L);
     cart.setUser(getUser());
-    List<Item> items = new ArrayList<>();
-    items.add(getItem());
-    cart.setItems(items);
+    cart.addItem(getItem());
     cart.setTotal(new BigDecimal(1));
     return cart;
   }
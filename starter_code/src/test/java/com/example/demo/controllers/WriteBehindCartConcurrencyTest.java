@@ -0,0 +1,11 @@
+package com.example.demo.controllers;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The same load against the write-behind cart store, flushing often enough to race with the requests and
+ * the checkouts.
+ */
+@SpringBootTest(properties = {"app.cart.store=write-behind", "app.cart.write-behind.flush-interval-ms=5"})
+public class WriteBehindCartConcurrencyTest extends CartConcurrencyTest {
+}
@@ -0,0 +1,304 @@
+package com.example.demo.load;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.constant.AppConstant;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Boots the application on a random port and drives it with concurrent simulated clients, then reports the
+ * throughput and the latency percentiles of every endpoint. Each client runs sessions of a new user: create the
+ * user, log in, then a weighted mix of catalog reads, cart changes, order submissions and history reads.
+ * <p>
+ * Clients send their next request as soon as the previous one is answered, so the percentiles are those of a
+ * closed system at the throughput it reached, not of a fixed arrival rate. Run it with
+ * <pre>
+ * mvn test -Dtest=LoadTestHarnessTest -Dload.clients=64 -Dload.duration-ms=60000 -Dload.warmup-ms=10000
+ * </pre>
+ * and pass application properties as {@code -Dload.properties=app.cart.store=write-behind,app.order.submit-mode=async}.
+ */
+public class LoadTestHarness {
+  private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final String PASSWORD = "load-test-password";
+
+  private final int clients;
+  private final long durationMillis;
+  private final long warmupMillis;
+  private final int actionsPerSession;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+  private final AtomicInteger userSequence = new AtomicInteger();
+  private volatile boolean recording;
+  private String baseUrl;
+  private List<Long> itemIds;
+
+  public LoadTestHarness(int clients, long durationMillis, long warmupMillis, int actionsPerSession) {
+    this.clients = clients;
+    this.durationMillis = durationMillis;
+    this.warmupMillis = warmupMillis;
+    this.actionsPerSession = actionsPerSession;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    LoadTestHarness harness = new LoadTestHarness(Integer.getInteger("load.clients", 32),
+        Long.getLong("load.duration-ms", 30000), Long.getLong("load.warmup-ms", 5000),
+        Integer.getInteger("load.actions-per-session", 20));
+    harness.run(args).print(System.out);
+  }
+
+  /**
+   * @param properties application properties as {@code name=value}, e.g. to switch the cart store
+   */
+  public Report run(String... properties) throws InterruptedException {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(SareetaApplication.class)
+        .properties("server.port=0", "management.server.port=0")
+        .properties(properties)
+        .run();
+    try {
+      baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+      itemIds = loadItemIds();
+      return drive();
+    } finally {
+      context.close();
+    }
+  }
+
+  private Report drive() throws InterruptedException {
+    long startedAt = System.currentTimeMillis();
+    long recordingFrom = startedAt + warmupMillis;
+    long endAt = recordingFrom + durationMillis;
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    for (int i = 0; i < clients; i++) {
+      executor.execute(() -> {
+        while (System.currentTimeMillis() < endAt) {
+          runSession(endAt);
+        }
+      });
+    }
+    // Requests answered during the warmup are not recorded
+    Thread.sleep(Math.max(0, recordingFrom - System.currentTimeMillis()));
+    recording = true;
+    long recordedFrom = System.nanoTime();
+    executor.shutdown();
+    if (!executor.awaitTermination(durationMillis + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS)) {
+      executor.shutdownNow();
+    }
+    recording = false;
+    return new Report(endpoints, System.nanoTime() - recordedFrom, clients);
+  }
+
+  private void runSession(long endAt) {
+    String username = "load_user_" + userSequence.incrementAndGet();
+    String token = signUp(username);
+    if (token == null) {
+      return;
+    }
+    // Quantity per item the cart holds, so an order is only submitted for a cart that is not empty
+    Map<Long, Integer> cart = new HashMap<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int action = 0; action < actionsPerSession && System.currentTimeMillis() < endAt; action++) {
+      int roll = random.nextInt(100);
+      long itemId = itemIds.get(random.nextInt(itemIds.size()));
+      String cartRequest = "{\"username\":\"" + username + "\",\"itemId\":" + itemId + ",\"quantity\":1}";
+      if (roll < 25) {
+        send("GET /api/item", "GET", "/api/item?page=" + random.nextInt(3), null, token);
+      } else if (roll < 40) {
+        send("GET /api/item/{id}", "GET", "/api/item/" + itemId, null, token);
+      } else if (roll < 65) {
+        if (send("POST /api/cart/addToCart", "POST", "/api/cart/addToCart", cartRequest, token).isSuccess()) {
+          cart.merge(itemId, 1, Integer::sum);
+        }
+      } else if (roll < 75) {
+        if (send("POST /api/cart/removeFromCart", "POST", "/api/cart/removeFromCart", cartRequest, token)
+            .isSuccess()) {
+          cart.computeIfPresent(itemId, (id, quantity) -> quantity > 1 ? quantity - 1 : null);
+        }
+      } else if (roll < 85 && !cart.isEmpty()) {
+        if (send("POST /api/order/submit/{username}", "POST", "/api/order/submit/" + username, null, token)
+            .isSuccess()) {
+          cart.clear();
+        }
+      } else {
+        send("GET /api/order/history/{username}", "GET", "/api/order/history/" + username, null, token);
+      }
+    }
+  }
+
+  private List<Long> loadItemIds() {
+    String token = signUp("load_catalog_reader");
+    List<Long> ids = new ArrayList<>();
+    try {
+      for (JsonNode item : objectMapper.readTree(send("GET /api/item", "GET", "/api/item", null, token).body)) {
+        ids.add(item.get("id").asLong());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Can not read the catalog", e);
+    }
+    if (ids.isEmpty()) {
+      throw new IllegalStateException("The catalog is empty");
+    }
+    return ids;
+  }
+
+  /**
+   * Creates the user and logs in, returns the bearer header or null if either failed.
+   */
+  private String signUp(String username) {
+    Response created = send("POST /api/user/create", "POST", AppConstant.CREATE_USER_URI, "{\"username\":\""
+        + username + "\",\"password\":\"" + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}", null);
+    if (!created.isSuccess()) {
+      return null;
+    }
+    return send("POST /login", "POST", "/login",
+        "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}", null).authorization;
+  }
+
+  private Response send(String endpointName, String method, String path, String body, String token) {
+    Endpoint endpoint = endpoints.computeIfAbsent(endpointName, name -> new Endpoint());
+    long startedAt = System.nanoTime();
+    Response response;
+    try {
+      response = execute(method, path, body, token);
+    } catch (IOException e) {
+      response = new Response(-1, null, null);
+    }
+    if (recording) {
+      endpoint.record(System.nanoTime() - startedAt, response.isSuccess());
+    }
+    return response;
+  }
+
+  private Response execute(String method, String path, String body, String token) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    if (token != null) {
+      connection.setRequestProperty(AppConstant.AUTHORIZATION_HEADER, token);
+    }
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    int status = connection.getResponseCode();
+    // Reading the body to the end lets the connection go back to the keep-alive pool
+    InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    byte[] content = in == null ? new byte[0] : readFully(in);
+    return new Response(status, connection.getHeaderField(AppConstant.AUTHORIZATION_HEADER), content);
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    try (InputStream input = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private static class Response {
+    private final int status;
+    private final String authorization;
+    private final byte[] body;
+
+    Response(int status, String authorization, byte[] body) {
+      this.status = status;
+      this.authorization = authorization;
+      this.body = body;
+    }
+
+    boolean isSuccess() {
+      return status >= 200 && status < 300;
+    }
+  }
+
+  static class Endpoint {
+    private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final LongAdder errorCount = new LongAdder();
+
+    void record(long latencyNanos, boolean success) {
+      recorder.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+      if (!success) {
+        errorCount.increment();
+      }
+    }
+  }
+
+  public static class Report {
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+    private final Map<String, Long> errors = new TreeMap<>();
+    private final long elapsedNanos;
+    private final int clients;
+
+    Report(Map<String, Endpoint> endpoints, long elapsedNanos, int clients) {
+      endpoints.forEach((name, endpoint) -> {
+        histograms.put(name, endpoint.recorder.getIntervalHistogram());
+        errors.put(name, endpoint.errorCount.sum());
+      });
+      this.elapsedNanos = elapsedNanos;
+      this.clients = clients;
+    }
+
+    public Map<String, Histogram> getHistograms() {
+      return histograms;
+    }
+
+    public long getErrorCount(String endpoint) {
+      return errors.getOrDefault(endpoint, 0L);
+    }
+
+    public double getThroughput(String endpoint) {
+      return histograms.get(endpoint).getTotalCount() / (elapsedNanos / 1e9);
+    }
+
+    public long getTotalCount() {
+      return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public void print(PrintStream out) {
+      double seconds = elapsedNanos / 1e9;
+      out.printf("%d clients, %.1f s, %d requests, %.1f req/s%n", clients, seconds, getTotalCount(),
+          getTotalCount() / seconds);
+      out.printf("%-36s %9s %7s %9s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "req/s", "p50 ms",
+          "p99 ms", "p99.9 ms", "max ms");
+      histograms.forEach((name, histogram) -> out.printf("%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name,
+          histogram.getTotalCount(), getErrorCount(name), getThroughput(name),
+          millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+          millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+    }
+
+    private static double millis(long nanos) {
+      return nanos / 1e6;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.load;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * A short run with a few clients that keeps the harness working. It boots the whole application, so it only runs
+ * with {@code -Dload.run=true}. The defaults are only a smoke test, pass {@code -Dload.clients},
+ * {@code -Dload.duration-ms} and {@code -Dload.warmup-ms} to measure a node. The report is written to
+ * {@code target/load-report.txt}.
+ */
+public class LoadTestHarnessTest {
+
+  @Test
+  public void run_reportsEveryEndpointWithoutErrors() throws InterruptedException, FileNotFoundException {
+    assumeTrue(Boolean.getBoolean("load.run"));
+    LoadTestHarness harness = new LoadTestHarness(Integer.getInteger("load.clients", 4),
+        Long.getLong("load.duration-ms", 3000), Long.getLong("load.warmup-ms", 1000),
+        Integer.getInteger("load.actions-per-session", 20));
+    // Cheap hashing unless measuring, the default strength is calibrated to a quarter of a second per login
+    String properties = System.getProperty("load.properties", "app.security.bcrypt.strength=4");
+
+    LoadTestHarness.Report report = harness.run(properties.isEmpty() ? new String[0] : properties.split(","));
+    try (PrintStream out = new PrintStream(new File("target", "load-report.txt"))) {
+      report.print(out);
+    }
+
+    Map<String, Histogram> histograms = report.getHistograms();
+    assertTrue(histograms.get("POST /login").getTotalCount() > 0);
+    assertTrue(histograms.get("POST /api/cart/addToCart").getTotalCount() > 0);
+    assertTrue(histograms.get("GET /api/item").getTotalCount() > 0);
+    histograms.keySet().forEach(endpoint -> assertEquals(endpoint, 0, report.getErrorCount(endpoint)));
+  }
+}
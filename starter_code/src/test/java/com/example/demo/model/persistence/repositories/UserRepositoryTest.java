@@ -0,0 +1,67 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.support.HibernateCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserRepositoryTest {
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private HibernateCacheStatistics cacheStatistics;
+
+  @Test
+  public void findByUsername_servedFromCaches() {
+    User user = new User();
+    user.setUsername("cached_user");
+    user.setPassword("12345678");
+    user.setCart(new Cart());
+    user = userRepository.save(user);
+
+    Statistics statistics = cacheStatistics.getStatistics();
+    assertEquals(user.getId(), userRepository.findByUsername("cached_user").getId());
+    long queries = statistics.getPrepareStatementCount();
+    long naturalIdHits = statistics.getNaturalIdCacheHitCount();
+    long userHits = cacheStatistics.getRegionStatistics(AppConstant.USER_CACHE_REGION).getHitCount();
+
+    assertEquals(user.getId(), userRepository.findByUsername("cached_user").getId());
+
+    assertEquals(queries, statistics.getPrepareStatementCount());
+    assertTrue(statistics.getNaturalIdCacheHitCount() > naturalIdHits);
+    assertTrue(cacheStatistics.getRegionStatistics(AppConstant.USER_CACHE_REGION).getHitCount() > userHits);
+    assertTrue(cacheStatistics.getNaturalIdHitRatio() > 0);
+  }
+
+  @Test
+  public void findByUsername_unknownOrNull() {
+    assertNull(userRepository.findByUsername("unknown_user"));
+    assertNull(userRepository.findByUsername(null));
+  }
+
+  @Test
+  public void updatePassword_evictsCachedUser() {
+    User user = new User();
+    user.setUsername("rehashed_user");
+    user.setPassword("old_hash");
+    user.setCart(new Cart());
+    user = userRepository.save(user);
+    userRepository.findByUsername("rehashed_user");
+
+    assertEquals(1, userRepository.updatePassword(user.getId(), "old_hash", "new_hash"));
+
+    assertEquals("new_hash", userRepository.findByUsername("rehashed_user").getPassword());
+  }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.security.filter;
+
+import com.example.demo.constant.AppConstant;
+import com.example.demo.security.support.AccountUserDetails;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.security.support.PasswordHashingExecutor;
+import com.example.demo.service.PasswordRehashService;
+import com.example.demo.service.TokenService;
+import com.example.demo.support.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The login runs on the hashing pool while the request is suspended in an {@link javax.servlet.AsyncContext}.
+ */
+public class JwtAuthenticationProcessingFilterTest {
+  @Mock
+  private AuthenticationManager authenticationManager;
+  @Mock
+  private TokenService tokenService;
+  @Mock
+  private PasswordRehashService passwordRehashService;
+
+  private PasswordHashingExecutor hashingExecutor;
+  private AccountUserDetails user;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    hashingExecutor = new PasswordHashingExecutor(1, 1);
+    request = new MockHttpServletRequest("POST", "/login");
+    request.setServletPath("/login");
+    request.setAsyncSupported(true);
+    request.setContent("{\"username\":\"new_user\",\"password\":\"password1\"}".getBytes(StandardCharsets.UTF_8));
+    response = new MockHttpServletResponse();
+    user = new AccountUserDetails("new_user", "hash", 7L, 9L);
+    when(authenticationManager.authenticate(any())).thenReturn(
+        new UsernamePasswordAuthenticationToken(user, "password1", Collections.emptyList()));
+    when(tokenService.createToken(any(AuthenticatedUser.class))).thenReturn("token");
+  }
+
+  @After
+  public void tearDown() {
+    hashingExecutor.shutdown();
+  }
+
+  @Test
+  public void login_authenticatedOnHashingPool() throws Exception {
+    filter(hashingExecutor).doFilter(request, response, new MockFilterChain());
+
+    awaitCompleted();
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(AppConstant.BEARER_HEADER + "token", response.getHeader(AppConstant.AUTHORIZATION_HEADER));
+    assertEquals(1, hashingExecutor.getCompletedCount());
+    // The stored hash is only kept for the rehash check
+    verify(passwordRehashService).rehashIfNeeded(7L, "new_user", "hash", "password1");
+    assertNull(user.getPassword());
+  }
+
+  @Test
+  public void login_badCredentials() throws Exception {
+    when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+    filter(hashingExecutor).doFilter(request, response, new MockFilterChain());
+
+    awaitCompleted();
+    assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    assertNull(response.getHeader(AppConstant.AUTHORIZATION_HEADER));
+  }
+
+  @Test
+  public void login_queueFull() throws Exception {
+    PasswordHashingExecutor fullExecutor = mock(PasswordHashingExecutor.class);
+    doThrow(new RejectedExecutionException()).when(fullExecutor).execute(any());
+
+    filter(fullExecutor).doFilter(request, response, new MockFilterChain());
+
+    assertFalse(request.isAsyncStarted());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    assertEquals("1", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  public void login_timedOutWhileQueued() throws Exception {
+    PasswordHashingExecutor stalledExecutor = mock(PasswordHashingExecutor.class);
+    filter(stalledExecutor).doFilter(request, response, new MockFilterChain());
+    Runnable task = queuedTask(stalledExecutor);
+
+    MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+
+    assertFalse(request.isAsyncStarted());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+    // Hashing that finishes after the timeout leaves the answered response alone
+    task.run();
+    assertNull(response.getHeader(AppConstant.AUTHORIZATION_HEADER));
+  }
+
+  @Test
+  public void login_errorWhileQueued() throws Exception {
+    PasswordHashingExecutor stalledExecutor = mock(PasswordHashingExecutor.class);
+    filter(stalledExecutor).doFilter(request, response, new MockFilterChain());
+    Runnable task = queuedTask(stalledExecutor);
+
+    MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset by peer")));
+    }
+
+    assertFalse(request.isAsyncStarted());
+    task.run();
+    assertNull(response.getHeader(AppConstant.AUTHORIZATION_HEADER));
+  }
+
+  @Test
+  public void login_unexpectedFailure() throws Exception {
+    when(tokenService.createToken(any(AuthenticatedUser.class))).thenThrow(new IllegalStateException("no signing key"));
+
+    filter(hashingExecutor).doFilter(request, response, new MockFilterChain());
+
+    awaitCompleted();
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
+  }
+
+  private JwtAuthenticationProcessingFilter filter(PasswordHashingExecutor executor) {
+    return new JwtAuthenticationProcessingFilter(authenticationManager, tokenService, executor,
+        passwordRehashService, new JsonCodec(new ObjectMapper()), 10000);
+  }
+
+  private Runnable queuedTask(PasswordHashingExecutor executor) {
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(task.capture());
+    assertTrue(request.isAsyncStarted());
+    return task.getValue();
+  }
+
+  private void awaitCompleted() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (request.isAsyncStarted() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertFalse(request.isAsyncStarted());
+  }
+}
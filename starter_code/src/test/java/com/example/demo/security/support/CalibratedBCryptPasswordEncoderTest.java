@@ -0,0 +1,34 @@
+package com.example.demo.security.support;
+
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CalibratedBCryptPasswordEncoderTest {
+
+  @Test
+  public void costOf_readsCostFromHash() {
+    assertEquals(5, CalibratedBCryptPasswordEncoder.costOf(new BCryptPasswordEncoder(5).encode("12345678")));
+    assertEquals(-1, CalibratedBCryptPasswordEncoder.costOf("plain"));
+    assertEquals(-1, CalibratedBCryptPasswordEncoder.costOf(null));
+  }
+
+  @Test
+  public void needsRehash_lowerCost() {
+    CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+    assertFalse(encoder.needsRehash(encoder.encode("12345678")));
+    assertTrue(encoder.needsRehash(new BCryptPasswordEncoder(4).encode("12345678")));
+    assertFalse(encoder.needsRehash(new BCryptPasswordEncoder(6).encode("12345678")));
+    assertTrue(encoder.matches("12345678", new BCryptPasswordEncoder(4).encode("12345678")));
+  }
+
+  @Test
+  public void calibrate_staysWithinBounds() {
+    assertEquals(4, CalibratedBCryptPasswordEncoder.calibrate(0, 4, 6).getStrength());
+    assertEquals(6, CalibratedBCryptPasswordEncoder.calibrate(10_000, 4, 6).getStrength());
+  }
+}
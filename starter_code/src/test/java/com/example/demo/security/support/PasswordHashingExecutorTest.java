@@ -0,0 +1,62 @@
+package com.example.demo.security.support;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordHashingExecutorTest {
+  private PasswordHashingExecutor hashingExecutor;
+
+  @Before
+  public void setUp() {
+    hashingExecutor = new PasswordHashingExecutor(1, 1);
+  }
+
+  @After
+  public void tearDown() {
+    hashingExecutor.shutdown();
+  }
+
+  @Test
+  public void execute_rejectsWhenQueueIsFull() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(2);
+
+    hashingExecutor.execute(() -> {
+      started.countDown();
+      await(release);
+      finished.countDown();
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    hashingExecutor.execute(finished::countDown);
+    assertEquals(1, hashingExecutor.getQueueSize());
+
+    try {
+      hashingExecutor.execute(finished::countDown);
+      fail();
+    } catch (RejectedExecutionException e) {
+      assertEquals(1, hashingExecutor.getRejectedCount());
+    }
+
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    assertTrue(hashingExecutor.getTotalQueueWait(TimeUnit.NANOSECONDS) > 0);
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.security.support;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VerifiedTokenCacheTest {
+  private final Algorithm algorithm = Algorithm.HMAC512("secret");
+  private VerifiedTokenCache verifiedTokenCache;
+  private AtomicInteger verifications;
+
+  @Before
+  public void setUp() {
+    verifiedTokenCache = new VerifiedTokenCache(100);
+    verifications = new AtomicInteger();
+  }
+
+  @Test
+  public void verify_sameTokenOnlyVerifiedOnce() {
+    String token = createToken("new_user", Instant.now().plusSeconds(60));
+
+    assertEquals("new_user", verifiedTokenCache.verify(token, this::verify).getSubject());
+    assertEquals("new_user", verifiedTokenCache.verify(token, this::verify).getSubject());
+
+    assertEquals(1, verifications.get());
+    assertEquals(1, verifiedTokenCache.getHitCount());
+    assertEquals(1, verifiedTokenCache.getMissCount());
+  }
+
+  @Test
+  public void verify_expiredTokenIsNotCached() {
+    String token = createToken("new_user", Instant.now().minusSeconds(1));
+
+    verifiedTokenCache.verify(token, JWT::decode);
+    verifiedTokenCache.verify(token, JWT::decode);
+
+    assertEquals(0, verifiedTokenCache.getHitCount());
+    assertEquals(2, verifiedTokenCache.getMissCount());
+  }
+
+  @Test
+  public void verify_tokenWithoutExpiryIsNotCached() {
+    String token = JWT.create()
+        .withSubject("new_user")
+        .sign(algorithm);
+
+    assertEquals("new_user", verifiedTokenCache.verify(token, this::verify).getSubject());
+    assertEquals("new_user", verifiedTokenCache.verify(token, this::verify).getSubject());
+
+    assertEquals(2, verifications.get());
+    assertEquals(0, verifiedTokenCache.getHitCount());
+  }
+
+  @Test
+  public void verify_invalidTokenIsNotCached() {
+    String token = JWT.create()
+        .withSubject("new_user")
+        .withExpiresAt(Instant.now().plusSeconds(60))
+        .sign(Algorithm.HMAC512("another secret"));
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        verifiedTokenCache.verify(token, this::verify);
+        fail();
+      } catch (SignatureVerificationException e) {
+        // expected
+      }
+    }
+    assertEquals(0, verifiedTokenCache.getSize());
+    assertEquals(2, verifications.get());
+  }
+
+  @Test
+  public void verify_concurrentThreadsKeepTheirTokens() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String subject = "user_" + (i % 20);
+        String token = createToken(subject, Instant.now().plusSeconds(60));
+        results.add(executor.submit(() -> subject.equals(verifiedTokenCache.verify(token, this::verify).getSubject())));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private DecodedJWT verify(String token) {
+    verifications.incrementAndGet();
+    return JWT.require(algorithm).build().verify(token);
+  }
+
+  private String createToken(String subject, Instant expiresAt) {
+    return JWT.create()
+        .withSubject(subject)
+        .withExpiresAt(expiresAt)
+        .sign(algorithm);
+  }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.OrderLineRow;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.responses.OrderView;
+import com.example.demo.support.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderServiceImplTest {
+  @InjectMocks
+  private OrderServiceImpl orderService;
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private CartRepository cartRepository;
+  @Mock
+  private EntityManager entityManager;
+  @Spy
+  private JsonCodec jsonCodec = new JsonCodec(new ObjectMapper());
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(orderRepository.save(any(UserOrder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  @Test
+  public void checkout_snapshotsLinesAndClearsCart() {
+    User user = new User();
+    user.setId(1L);
+    Cart cart = new Cart();
+    cart.setUser(user);
+    user.setCart(cart);
+    Item item = getItem();
+    cart.addItem(item, 1000);
+
+    UserOrder order = orderService.checkout(user);
+
+    assertEquals(1, order.getLines().size());
+    OrderLine line = order.getLines().get(0);
+    assertEquals(item.getId(), line.getItemId());
+    assertEquals(1000, line.getQuantity());
+    assertEquals(new BigDecimal("2.99"), line.getUnitPrice());
+    assertEquals(new BigDecimal("2990.00"), order.getTotal());
+
+    item.setPrice(new BigDecimal("3.99"));
+    assertEquals(new BigDecimal("2.99"), line.getUnitPrice());
+
+    assertTrue(cart.getLines().isEmpty());
+    assertEquals(BigDecimal.ZERO, cart.getTotal());
+    verify(cartRepository).save(cart);
+  }
+
+  @Test
+  public void exportOrders_writesOneLinePerOrderAndDetaches() throws IOException {
+    User user = new User();
+    user.setId(1L);
+    UserOrder first = getOrder(1L, user);
+    UserOrder second = getOrder(2L, user);
+    when(orderRepository.streamByUserId(user.getId())).thenReturn(Stream.of(first, second));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    long count = orderService.exportOrders(user.getId(), outputStream);
+
+    assertEquals(2, count);
+    String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n", -1);
+    assertEquals(3, lines.length);
+    assertTrue(lines[0].startsWith("{\"id\":1,"));
+    assertTrue(lines[1].startsWith("{\"id\":2,"));
+    assertEquals("", lines[2]);
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(second);
+  }
+
+  @Test
+  public void findHistory_foldsRowsIntoOrders() {
+    User user = new User();
+    user.setId(1L);
+    when(orderRepository.findHistoryRows(1L, 0L, 3)).thenReturn(Arrays.asList(
+        getRow(1L, "5.97", 1L, "2.99", 1),
+        getRow(1L, "5.97", 2L, "1.99", 2),
+        getRow(2L, "0.00", null, null, null)));
+
+    List<OrderView> orders = orderService.findHistory(user.getId(), 0L, 3);
+
+    assertEquals(2, orders.size());
+    assertEquals(Long.valueOf(1L), orders.get(0).getId());
+    assertEquals(new BigDecimal("5.97"), orders.get(0).getTotal());
+    assertEquals(2, orders.get(0).getLines().size());
+    assertEquals(Long.valueOf(2L), orders.get(0).getLines().get(1).getItemId());
+    assertEquals(2, orders.get(0).getLines().get(1).getQuantity());
+    assertEquals(Long.valueOf(2L), orders.get(1).getId());
+    assertTrue(orders.get(1).getLines().isEmpty());
+  }
+
+  @Test
+  public void exportOrders_noOrders() throws IOException {
+    User user = new User();
+    when(orderRepository.streamByUserId(user.getId())).thenReturn(Stream.empty());
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    assertEquals(0, orderService.exportOrders(user.getId(), outputStream));
+    assertEquals(0, outputStream.size());
+  }
+
+  private UserOrder getOrder(long id, User user) {
+    Cart cart = new Cart();
+    cart.setUser(user);
+    cart.addItem(getItem(), 2);
+    UserOrder order = UserOrder.createFromCart(cart);
+    order.setId(id);
+    return order;
+  }
+
+  private OrderLineRow getRow(Long orderId, String total, Long itemId, String unitPrice, Integer quantity) {
+    return new OrderLineRow() {
+      @Override
+      public Long getOrderId() {
+        return orderId;
+      }
+
+      @Override
+      public BigDecimal getTotal() {
+        return new BigDecimal(total);
+      }
+
+      @Override
+      public Long getItemId() {
+        return itemId;
+      }
+
+      @Override
+      public BigDecimal getUnitPrice() {
+        return unitPrice == null ? null : new BigDecimal(unitPrice);
+      }
+
+      @Override
+      public Integer getQuantity() {
+        return quantity;
+      }
+    };
+  }
+
+  private Item getItem() {
+    Item item = new Item();
+    item.setId(1L);
+    item.setName("Round Widget");
+    item.setPrice(new BigDecimal("2.99"));
+    return item;
+  }
+}
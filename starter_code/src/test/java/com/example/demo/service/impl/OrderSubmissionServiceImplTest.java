@@ -0,0 +1,201 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.model.responses.OrderSubmissionView;
+import com.example.demo.service.CartStore;
+import com.example.demo.support.CartLocks;
+import com.example.demo.support.OrderIdSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderSubmissionServiceImplTest {
+  @Mock
+  private OrderRepository orderRepository;
+  @Mock
+  private EntityManager entityManager;
+  @Mock
+  private CartStore cartStore;
+  @Mock
+  private OrderIdSequence orderIds;
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private OrderSubmissionServiceImpl orderSubmissionService;
+  private Cart cart;
+  private Item item;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    item = new Item();
+    item.setId(1L);
+    item.setName("Java Core");
+    item.setPrice(new BigDecimal(2));
+    cart = new Cart();
+    cart.setId(9L);
+    cart.setTotal(BigDecimal.ZERO);
+    when(cartStore.read(anyString(), any(), any())).thenAnswer(invocation -> {
+      Function<Cart, ?> reader = invocation.getArgument(2);
+      return reader.apply(cart);
+    });
+    when(cartStore.change(anyString(), any(), any())).thenAnswer(invocation -> {
+      Consumer<Cart> change = invocation.getArgument(2);
+      change.accept(cart);
+      return CartView.from(cart);
+    });
+    when(entityManager.getReference(eq(User.class), anyLong())).thenReturn(new User());
+    when(orderIds.next()).thenReturn(51L, 52L);
+    orderSubmissionService = new OrderSubmissionServiceImpl(orderRepository, entityManager, cartStore, orderIds,
+        new CartLocks(4), transactionManager, 1, 10, 60000);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    orderSubmissionService.shutdown();
+  }
+
+  @Test
+  public void submit_reservesOrderIdAndEmptiesCartOnceWritten() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    when(orderRepository.save(any(UserOrder.class))).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      UserOrder order = invocation.getArgument(0);
+      order.setId(order.getReservedId());
+      return order;
+    });
+    cart.addItem(item, 3);
+
+    OrderSubmissionView submission = orderSubmissionService.submit("new_user", 7L, 9L);
+
+    assertNotNull(submission);
+    assertEquals(Long.valueOf(51L), submission.getId());
+    assertEquals(OrderSubmissionView.Status.QUEUED, submission.getStatus());
+    assertEquals(3, cart.getLines().get(0).getQuantity());
+    cart.addItem(item, 1);
+    release.countDown();
+    OrderSubmissionView written = awaitWritten(submission.getId());
+    assertEquals(OrderSubmissionView.Status.COMPLETED, written.getStatus());
+    assertEquals(Long.valueOf(51L), written.getOrderId());
+    assertEquals(1, orderSubmissionService.getWrittenCount());
+    // Only the ordered quantity is taken out, the unit added after submitting stays
+    assertEquals(1, cart.getLines().get(0).getQuantity());
+  }
+
+  @Test
+  public void submit_emptyCart() {
+    assertNull(orderSubmissionService.submit("new_user", 7L, 9L));
+    assertEquals(0, orderSubmissionService.getSubmittedCount());
+    verify(orderIds, never()).next();
+  }
+
+  @Test
+  public void submit_refusedWhileEarlierOrderIsPending() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    when(orderRepository.save(any(UserOrder.class))).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return invocation.getArgument(0);
+    });
+    cart.addItem(item, 1);
+    OrderSubmissionView first = orderSubmissionService.submit("new_user", 7L, 9L);
+    try {
+      orderSubmissionService.submit("new_user", 7L, 9L);
+      fail("Second submission of a cart still being ordered was accepted");
+    } catch (IllegalStateException e) {
+      assertEquals(1, orderSubmissionService.getSubmittedCount());
+    } finally {
+      release.countDown();
+    }
+    assertEquals(OrderSubmissionView.Status.COMPLETED, awaitWritten(first.getId()).getStatus());
+  }
+
+  @Test
+  public void submit_fullQueueRejected() throws InterruptedException {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(orderRepository.save(any(UserOrder.class))).thenAnswer(invocation -> {
+      writing.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return invocation.getArgument(0);
+    });
+    cart.addItem(item, 1);
+    orderSubmissionService.submit("new_user", 7L, 9L);
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    try {
+      orderSubmissionService.submit("other_user", 8L, 9L);
+      fail("Submission into a full queue was accepted");
+    } catch (RejectedExecutionException e) {
+      assertEquals(1, orderSubmissionService.getRejectedCount());
+      verify(orderIds).next();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void failedWrite_leavesItemsInCart() throws InterruptedException {
+    when(orderRepository.save(any(UserOrder.class))).thenThrow(new IllegalStateException("database is down"));
+    cart.addItem(item, 3);
+
+    OrderSubmissionView submission = orderSubmissionService.submit("new_user", 7L, 9L);
+
+    assertEquals(OrderSubmissionView.Status.FAILED, awaitWritten(submission.getId()).getStatus());
+    assertEquals(3, cart.getLines().get(0).getQuantity());
+    assertEquals(new BigDecimal(6), cart.getTotal());
+    assertEquals(1, orderSubmissionService.getFailedCount());
+    verify(cartStore, never()).change(anyString(), any(), any());
+    // The failed order no longer blocks the next one
+    assertEquals(Long.valueOf(52L), orderSubmissionService.submit("new_user", 7L, 9L).getId());
+  }
+
+  @Test
+  public void find_onlyForSubmittingUser() {
+    when(orderRepository.save(any(UserOrder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    cart.addItem(item, 1);
+
+    OrderSubmissionView submission = orderSubmissionService.submit("new_user", 7L, 9L);
+
+    assertNotNull(orderSubmissionService.find(submission.getId(), "new_user"));
+    assertNull(orderSubmissionService.find(submission.getId(), "other_user"));
+  }
+
+  private OrderSubmissionView awaitWritten(long id) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    OrderSubmissionView submission = orderSubmissionService.find(id, "new_user");
+    while (submission.getStatus() == OrderSubmissionView.Status.QUEUED && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+      submission = orderSubmissionService.find(id, "new_user");
+    }
+    return submission;
+  }
+}
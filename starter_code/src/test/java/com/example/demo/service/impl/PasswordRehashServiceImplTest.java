@@ -0,0 +1,56 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.support.CalibratedBCryptPasswordEncoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class PasswordRehashServiceImplTest {
+  @Mock
+  private UserRepository userRepository;
+
+  private PasswordRehashServiceImpl passwordRehashService;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    passwordRehashService = new PasswordRehashServiceImpl(userRepository, new CalibratedBCryptPasswordEncoder(5), 10);
+  }
+
+  @After
+  public void tearDown() {
+    passwordRehashService.shutdown();
+  }
+
+  @Test
+  public void rehashIfNeeded_lowerCostReplacesStoredHash() {
+    String storedHash = new BCryptPasswordEncoder(4).encode("password1");
+
+    passwordRehashService.rehashIfNeeded(7L, "new_user", storedHash, "password1");
+
+    verify(userRepository, timeout(5000)).updatePassword(eq(7L), eq(storedHash), anyString());
+    // The check works on the hash the login was verified with, the user is not loaded again
+    verifyNoMoreInteractions(userRepository);
+  }
+
+  @Test
+  public void rehashIfNeeded_currentOrHigherCostNotQueued() {
+    passwordRehashService.rehashIfNeeded(7L, "new_user", new BCryptPasswordEncoder(5).encode("password1"), "password1");
+    passwordRehashService.rehashIfNeeded(7L, "new_user", new BCryptPasswordEncoder(6).encode("password1"), "password1");
+
+    verify(userRepository, after(200).never()).updatePassword(anyLong(), anyString(), anyString());
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.service.impl;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.config.TokenProperties;
+import com.example.demo.security.support.AuthenticatedUser;
+import com.example.demo.security.support.KeyUtil;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenServiceImplTest {
+
+  @Test
+  public void createToken_defaultKey() {
+    TokenServiceImpl tokenService = new TokenServiceImpl(new TokenProperties());
+
+    DecodedJWT jwt = tokenService.verify(tokenService.createToken("new_user"));
+
+    assertEquals("new_user", jwt.getSubject());
+    assertEquals(KeyUtil.DEFAULT_KEY_ID, jwt.getKeyId());
+    assertEquals("HS512", jwt.getAlgorithm());
+  }
+
+  @Test
+  public void createToken_carriesUserAndCartIds() {
+    TokenServiceImpl tokenService = new TokenServiceImpl(new TokenProperties());
+
+    AuthenticatedUser user = AuthenticatedUser.from(
+        tokenService.verify(tokenService.createToken(new AuthenticatedUser("new_user", 7L, 9L))));
+
+    assertEquals("new_user", user.getUsername());
+    assertEquals(Long.valueOf(7L), user.getUserId());
+    assertEquals(Long.valueOf(9L), user.getCartId());
+    assertTrue(user.isUser("new_user"));
+    assertFalse(user.isUser("other_user"));
+  }
+
+  @Test
+  public void createToken_subjectOnly() {
+    TokenServiceImpl tokenService = new TokenServiceImpl(new TokenProperties());
+
+    AuthenticatedUser user = AuthenticatedUser.from(tokenService.verify(tokenService.createToken("new_user")));
+
+    assertEquals("new_user", user.getUsername());
+    assertNull(user.getUserId());
+    assertNull(user.getCartId());
+    assertFalse(user.isUser("new_user"));
+  }
+
+  @Test
+  public void createToken_rsaAndEcKeys() throws Exception {
+    for (TokenProperties.Key key : Arrays.asList(
+        asymmetricKey("rs", "RS256", "RSA", 2048),
+        asymmetricKey("es", "ES256", "EC", 256))) {
+      TokenServiceImpl tokenService = new TokenServiceImpl(properties(key.getId(), key));
+
+      DecodedJWT jwt = tokenService.verify(tokenService.createToken("new_user"));
+
+      assertEquals("new_user", jwt.getSubject());
+      assertEquals(key.getAlgorithm(), jwt.getAlgorithm());
+    }
+  }
+
+  @Test
+  public void verify_tokenSignedBeforeRotation() {
+    TokenProperties.Key oldKey = secretKey("2023", "old-secret");
+    TokenProperties.Key newKey = secretKey("2024", "new-secret");
+    String token = new TokenServiceImpl(properties("2023", oldKey)).createToken("new_user");
+
+    TokenServiceImpl rotated = new TokenServiceImpl(properties("2024", oldKey, newKey));
+
+    assertEquals("new_user", rotated.verify(token).getSubject());
+    assertEquals("2024", rotated.verify(rotated.createToken("new_user")).getKeyId());
+  }
+
+  @Test(expected = JWTVerificationException.class)
+  public void verify_retiredKey() {
+    String token = new TokenServiceImpl(properties("2023", secretKey("2023", "old-secret"))).createToken("new_user");
+
+    new TokenServiceImpl(properties("2024", secretKey("2024", "new-secret"))).verify(token);
+  }
+
+  @Test(expected = JWTVerificationException.class)
+  public void verify_tamperedKeyId() {
+    String token = new TokenServiceImpl(properties("a", secretKey("a", "secret-a"))).createToken("new_user");
+
+    new TokenServiceImpl(properties("b", secretKey("a", "secret-b"), secretKey("b", "secret-b"))).verify(token);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void activeKeyWithoutPrivateKey() throws Exception {
+    TokenProperties.Key key = asymmetricKey("rs", "RS256", "RSA", 2048);
+    key.setPrivateKey(null);
+
+    new TokenServiceImpl(properties("rs", key));
+  }
+
+  private TokenProperties properties(String activeKeyId, TokenProperties.Key... keys) {
+    TokenProperties properties = new TokenProperties();
+    properties.setActiveKeyId(activeKeyId);
+    properties.setKeys(Arrays.asList(keys));
+    return properties;
+  }
+
+  private TokenProperties.Key secretKey(String id, String secret) {
+    TokenProperties.Key key = new TokenProperties.Key();
+    key.setId(id);
+    key.setAlgorithm("HS512");
+    key.setSecret(secret);
+    return key;
+  }
+
+  private TokenProperties.Key asymmetricKey(String id, String algorithm, String keyAlgorithm, int keySize)
+      throws NoSuchAlgorithmException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+    generator.initialize(keySize);
+    KeyPair keyPair = generator.generateKeyPair();
+    TokenProperties.Key key = new TokenProperties.Key();
+    key.setId(id);
+    key.setAlgorithm(algorithm);
+    key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+    key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+    return key;
+  }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.CartView;
+import com.example.demo.support.CartLocks;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"app.cart.store=write-behind", "app.cart.write-behind.flush-interval-ms=3600000",
+    "app.cart.write-behind.max-dirty=2"})
+public class WriteBehindCartStoreTest {
+  @Autowired
+  private WriteBehindCartStore cartStore;
+  @Autowired
+  private CartLocks cartLocks;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ItemRepository itemRepository;
+
+  private Item round;
+
+  @Before
+  public void setUp() {
+    round = itemRepository.findByName("Round Widget").get(0);
+    cartStore.flushAll();
+  }
+
+  @Test
+  public void changes_keptInMemoryUntilFlushed() {
+    User user = createUser("write_behind_flush");
+
+    CartView view = add(user, 3);
+    assertEquals(3, view.getLines().get(0).getQuantity());
+    assertTrue(persisted(user).getLines().isEmpty());
+
+    assertEquals(1, cartStore.flushAll());
+    Cart cart = persisted(user);
+    assertEquals(1, cart.getLines().size());
+    assertEquals(3, cart.getLines().get(0).getQuantity());
+    assertAmount(round.getPrice().multiply(BigDecimal.valueOf(3)), cart.getTotal());
+
+    cartLocks.withLock(user.getUsername(), () -> cartStore.removeItem(user.getUsername(), null, round, 3));
+    assertEquals(1, persisted(user).getLines().size());
+    cartStore.flushAll();
+    assertTrue(persisted(user).getLines().isEmpty());
+    assertAmount(BigDecimal.ZERO, persisted(user).getTotal());
+  }
+
+  @Test
+  public void flush_writesOnlyThatUser() {
+    User user = createUser("write_behind_single");
+    User other = createUser("write_behind_other");
+    add(user, 1);
+    add(other, 1);
+
+    cartLocks.withLock(user.getUsername(), () -> {
+      cartStore.flush(user.getUsername());
+      return null;
+    });
+
+    assertEquals(1, persisted(user).getLines().size());
+    assertTrue(persisted(other).getLines().isEmpty());
+    assertEquals(1, cartStore.getDirtyCount());
+  }
+
+  @Test
+  public void fullDirtySet_writesThrough() {
+    add(createUser("write_behind_full_1"), 1);
+    add(createUser("write_behind_full_2"), 1);
+    User user = createUser("write_behind_full_3");
+
+    add(user, 2);
+
+    assertEquals(2, cartStore.getDirtyCount());
+    assertEquals(2, persisted(user).getLines().get(0).getQuantity());
+  }
+
+  @Test
+  public void failedWriteThrough_leavesCartUnchanged() {
+    CartRepository failingRepository = mock(CartRepository.class);
+    Cart cart = new Cart();
+    cart.setId(1L);
+    cart.addItem(round, 1);
+    when(failingRepository.findWithLinesByUsername("write_behind_failing")).thenReturn(cart);
+    when(failingRepository.findAllWithLinesByIdIn(anyCollection())).thenThrow(new IllegalStateException("down"));
+    WriteBehindCartStore store = new WriteBehindCartStore(failingRepository, cartLocks,
+        mock(PlatformTransactionManager.class), 3600000, 100, 0, 600000);
+    try {
+      store.addItem("write_behind_failing", null, round, 2);
+      fail("The failed write was swallowed");
+    } catch (IllegalStateException e) {
+      assertEquals(Integer.valueOf(1),
+          store.read("write_behind_failing", null, changed -> changed.getLines().get(0).getQuantity()));
+      assertEquals(0, store.getDirtyCount());
+    } finally {
+      store.shutdown();
+    }
+  }
+
+  @Test
+  public void evict_reloadsFromDatabase() {
+    User user = createUser("write_behind_evict");
+    add(user, 1);
+    cartStore.flushAll();
+
+    cartLocks.withLock(user.getUsername(), () -> {
+      cartStore.evict(user.getUsername());
+      return null;
+    });
+
+    assertEquals(2, add(user, 1).getLines().get(0).getQuantity());
+  }
+
+  @Test
+  public void unknownUser() {
+    assertNull(cartLocks.withLock("write_behind_nobody", () -> cartStore.addItem("write_behind_nobody", null, round, 1)));
+  }
+
+  private CartView add(User user, int quantity) {
+    return cartLocks.withLock(user.getUsername(),
+        () -> cartStore.addItem(user.getUsername(), user.getCart().getId(), round, quantity));
+  }
+
+  private Cart persisted(User user) {
+    return cartRepository.findWithLinesById(user.getCart().getId());
+  }
+
+  private User createUser(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("password1");
+    user.setCart(new Cart());
+    return userRepository.save(user);
+  }
+
+  private void assertAmount(BigDecimal expected, BigDecimal actual) {
+    assertEquals(expected + " != " + actual, 0, expected.compareTo(actual));
+  }
+}
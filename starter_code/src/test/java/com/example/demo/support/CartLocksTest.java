@@ -0,0 +1,80 @@
+package com.example.demo.support;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CartLocksTest {
+  private CartLocks cartLocks;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    cartLocks = new CartLocks(16);
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void stripeCount_roundedUpToPowerOfTwo() {
+    assertEquals(16, cartLocks.getStripeCount());
+    assertEquals(128, new CartLocks(100).getStripeCount());
+    assertEquals(2, new CartLocks(0).getStripeCount());
+  }
+
+  @Test
+  public void withLock_serializesSameUserOnly() throws Exception {
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> holder = executor.submit(() -> cartLocks.withLock("new_user", () -> {
+      locked.countDown();
+      await(release);
+      return null;
+    }));
+    assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+    assertEquals("other", cartLocks.withLock(userOnOtherStripe("new_user"), () -> "other"));
+    assertEquals(0, cartLocks.getContendedCount());
+
+    Future<String> waiter = executor.submit(() -> cartLocks.withLock("new_user", () -> "same"));
+    while (cartLocks.getContendedCount() == 0) {
+      Thread.sleep(5);
+    }
+    assertFalse(waiter.isDone());
+
+    release.countDown();
+    holder.get(5, TimeUnit.SECONDS);
+    assertEquals("same", waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(1, cartLocks.getContendedCount());
+  }
+
+  private String userOnOtherStripe(String username) {
+    for (int i = 0; ; i++) {
+      if (cartLocks.stripeIndex("user_" + i) != cartLocks.stripeIndex(username)) {
+        return "user_" + i;
+      }
+    }
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
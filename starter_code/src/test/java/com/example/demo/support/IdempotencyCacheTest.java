@@ -0,0 +1,147 @@
+package com.example.demo.support;
+
+import com.example.demo.constant.AppConstant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IdempotencyCacheTest {
+  private IdempotencyCache idempotencyCache;
+  private AtomicInteger executions;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    idempotencyCache = new IdempotencyCache(100, 60000, 5000);
+    executions = new AtomicInteger();
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void sameKey_executesOnce() {
+    ResponseEntity<?> first = idempotencyCache.execute("user:1", () -> ok("order-" + executions.incrementAndGet()));
+    ResponseEntity<?> retry = idempotencyCache.execute("user:1", () -> ok("order-" + executions.incrementAndGet()));
+
+    assertEquals(1, executions.get());
+    assertEquals("order-1", retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(AppConstant.IDEMPOTENT_REPLAYED_HEADER));
+    assertEquals(1, idempotencyCache.getReplayedCount());
+    assertEquals("order-2", idempotencyCache.execute("user:2", () -> ok("order-" + executions.incrementAndGet()))
+        .getBody());
+  }
+
+  @Test
+  public void concurrentDuplicate_waitsForInFlightResponse() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<ResponseEntity<?>> first = executor.submit(() -> idempotencyCache.execute("user:1", () -> {
+      started.countDown();
+      await(release);
+      return ok("order-" + executions.incrementAndGet());
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    Thread duplicate = new Thread(() -> idempotencyCache.execute("user:1", () -> ok("duplicate")));
+    duplicate.start();
+    duplicate.join(100);
+    assertTrue(duplicate.isAlive());
+
+    release.countDown();
+    duplicate.join(5000);
+    assertFalse(duplicate.isAlive());
+    assertEquals("order-1", first.get(5, TimeUnit.SECONDS).getBody());
+    assertEquals(1, executions.get());
+    assertEquals(1, idempotencyCache.getReplayedCount());
+  }
+
+  @Test
+  public void concurrentDuplicate_conflictWhenInFlightRequestOutlastsWait() throws Exception {
+    IdempotencyCache shortWait = new IdempotencyCache(100, 60000, 50);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<ResponseEntity<?>> first = executor.submit(() -> shortWait.execute("user:1", () -> {
+      started.countDown();
+      await(release);
+      return ok("order-" + executions.incrementAndGet());
+    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    ResponseEntity<?> duplicate = shortWait.execute("user:1", () -> ok("duplicate"));
+    assertEquals(HttpStatus.CONFLICT, duplicate.getStatusCode());
+    assertEquals("1", duplicate.getHeaders().getFirst("Retry-After"));
+    assertEquals(0, shortWait.getReplayedCount());
+
+    release.countDown();
+    assertEquals("order-1", first.get(5, TimeUnit.SECONDS).getBody());
+    assertEquals("order-1", shortWait.execute("user:1", () -> ok("duplicate")).getBody());
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void serverError_executesAgain() {
+    idempotencyCache.execute("user:1", () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+    assertEquals(HttpStatus.OK, idempotencyCache.execute("user:1", () -> ok("order")).getStatusCode());
+    assertEquals(0, idempotencyCache.getReplayedCount());
+  }
+
+  @Test
+  public void exception_executesAgain() {
+    try {
+      idempotencyCache.execute("user:1", () -> {
+        throw new IllegalStateException("database is down");
+      });
+      fail("The exception was swallowed");
+    } catch (IllegalStateException e) {
+      assertEquals("database is down", e.getMessage());
+    }
+
+    assertEquals("order", idempotencyCache.execute("user:1", () -> ok("order")).getBody());
+  }
+
+  @Test
+  public void error_executesAgain() {
+    try {
+      idempotencyCache.execute("user:1", () -> {
+        throw new StackOverflowError("too deep");
+      });
+      fail("The error was swallowed");
+    } catch (StackOverflowError e) {
+      assertEquals("too deep", e.getMessage());
+    }
+
+    assertEquals("order", idempotencyCache.execute("user:1", () -> ok("order")).getBody());
+    assertEquals(0, idempotencyCache.getReplayedCount());
+  }
+
+  private static ResponseEntity<?> ok(String body) {
+    return ResponseEntity.ok(body);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
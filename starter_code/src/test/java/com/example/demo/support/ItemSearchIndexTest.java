@@ -0,0 +1,157 @@
+package com.example.demo.support;
+
+import com.example.demo.event.ItemChangedEvent;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ItemSearchIndexTest {
+  private ItemRepository itemRepository;
+  private ItemSearchIndex itemSearchIndex;
+
+  @Before
+  public void setUp() {
+    itemRepository = mock(ItemRepository.class);
+    itemSearchIndex = new ItemSearchIndex(itemRepository, null);
+    itemSearchIndex.index(getItem(1L, "Round Widget", "A widget that is round"));
+    itemSearchIndex.index(getItem(2L, "Square Widget", "A widget that is square"));
+    itemSearchIndex.index(getItem(3L, "Round Table", "A table for widgets"));
+  }
+
+  @Test
+  public void search_prefixOfLastToken() {
+    assertEquals(Arrays.asList(1L, 2L, 3L), ids(itemSearchIndex.search("wid", 10)));
+    assertEquals(Arrays.asList(1L, 3L), ids(itemSearchIndex.search("rou", 10)));
+  }
+
+  @Test
+  public void search_ranksNameAndWholeWordMatchesFirst() {
+    itemSearchIndex.index(getItem(4L, "Widget Box", "A box"));
+
+    // Whole word in name and description, then whole word in name only, then a prefix of a description word
+    assertEquals(Arrays.asList(1L, 2L, 4L, 3L), ids(itemSearchIndex.search("widget", 10)));
+  }
+
+  @Test
+  public void search_allTokensMustMatch() {
+    assertEquals(Arrays.asList(1L, 3L), ids(itemSearchIndex.search("round wid", 10)));
+    assertEquals(Arrays.asList(2L), ids(itemSearchIndex.search("square wid", 10)));
+    assertTrue(itemSearchIndex.search("round squ", 10).isEmpty());
+    assertTrue(itemSearchIndex.search("  ", 10).isEmpty());
+  }
+
+  @Test
+  public void search_limit() {
+    assertEquals(Arrays.asList(1L, 2L), ids(itemSearchIndex.search("widget", 2)));
+    assertTrue(itemSearchIndex.search("widget", 0).isEmpty());
+  }
+
+  @Test
+  public void search_prefixKeepsBestWordPerItem() {
+    itemSearchIndex.index(getItem(4L, "Wide Widow", "wider widest"));
+    itemSearchIndex.index(getItem(5L, "Wi", "wig"));
+
+    // Item 5 matches the prefix as a whole word in its name, item 4 with four different words
+    assertEquals(Arrays.asList(5L, 1L, 2L, 4L, 3L), ids(itemSearchIndex.search("wi", 10)));
+  }
+
+  @Test
+  public void load_searchesNeverSeeAPartialCatalog() throws Exception {
+    List<Item> catalog = new ArrayList<>();
+    for (long id = 1; id <= 2000; id++) {
+      catalog.add(getItem(id, "Widget " + id, "A widget"));
+    }
+    itemSearchIndex.load(catalog);
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reloader = new Thread(() -> {
+      while (!done.get()) {
+        itemSearchIndex.load(catalog);
+      }
+    });
+    reloader.start();
+    try {
+      for (int i = 0; i < 200; i++) {
+        assertEquals(2000, itemSearchIndex.search("widg", 5000).size());
+      }
+    } finally {
+      done.set(true);
+      reloader.join();
+    }
+  }
+
+  @Test
+  public void onItemChanged_updatesAndRemoves() {
+    itemSearchIndex.onItemChanged(new ItemChangedEvent(getItem(2L, "Square Gadget", "A gadget"),
+        ItemChangedEvent.Type.UPDATED));
+    assertEquals(Arrays.asList(1L, 3L), ids(itemSearchIndex.search("widget", 10)));
+    assertEquals(Arrays.asList(2L), ids(itemSearchIndex.search("gad", 10)));
+
+    itemSearchIndex.onItemChanged(new ItemChangedEvent(getItem(1L, null, null), ItemChangedEvent.Type.DELETED));
+    assertEquals(Arrays.asList(3L), ids(itemSearchIndex.search("round", 10)));
+    assertEquals(2, itemSearchIndex.size());
+  }
+
+  @Test
+  public void rebuild_loadsEveryPage() {
+    ItemSearchIndex index = new ItemSearchIndex(itemRepository, null);
+    when(itemRepository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+      Pageable pageable = invocation.getArgument(0);
+      List<Item> items = pageable.getPageNumber() == 0
+          ? Arrays.asList(getItem(1L, "Round Widget", "round"))
+          : Arrays.asList(getItem(2L, "Square Widget", "square"));
+      return new PageImpl<>(items, pageable, pageable.getPageSize() + 1);
+    });
+
+    index.rebuild();
+
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void onContextRefreshed_onlyRebuildsForItsOwnContext() {
+    ApplicationContext applicationContext = mock(ApplicationContext.class);
+    ItemSearchIndex index = new ItemSearchIndex(itemRepository, applicationContext);
+    when(itemRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(Collections.emptyList()));
+
+    index.onContextRefreshed(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+    verify(itemRepository, never()).findAll(any(Pageable.class));
+
+    index.onContextRefreshed(new ContextRefreshedEvent(applicationContext));
+    verify(itemRepository).findAll(any(Pageable.class));
+  }
+
+  private List<Long> ids(List<Item> items) {
+    return items.stream().map(Item::getId).collect(Collectors.toList());
+  }
+
+  private Item getItem(Long id, String name, String description) {
+    Item item = new Item();
+    item.setId(id);
+    item.setName(name);
+    item.setPrice(new BigDecimal("2.99"));
+    item.setDescription(description);
+    return item;
+  }
+}
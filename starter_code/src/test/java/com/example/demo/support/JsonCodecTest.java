@@ -0,0 +1,61 @@
+package com.example.demo.support;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonCodecTest {
+
+  @Test
+  public void everyControllerTypeIsWarmedUp() throws Exception {
+    ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+    scanner.addIncludeFilter(new AnnotationTypeFilter(RestController.class));
+    List<Method> handlers = new ArrayList<>();
+    for (BeanDefinition controller : scanner.findCandidateComponents("com.example.demo.controllers")) {
+      for (Method method : ClassUtils.forName(controller.getBeanClassName(), null).getDeclaredMethods()) {
+        if (AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+          handlers.add(method);
+        }
+      }
+    }
+    assertFalse(handlers.isEmpty());
+
+    for (Method handler : handlers) {
+      ResolvableType returnType = ResolvableType.forMethodReturnType(handler);
+      if (ResponseEntity.class.equals(returnType.resolve())) {
+        returnType = returnType.getGeneric();
+      }
+      if (returnType.asCollection() != ResolvableType.NONE) {
+        returnType = returnType.asCollection().getGeneric();
+      }
+      Class<?> body = returnType.resolve();
+      // ResponseEntity<?> answers with one of several types and void handlers write the response themselves
+      if (body != null && !Object.class.equals(body) && !void.class.equals(body)) {
+        assertTrue(handler + " answers with " + body.getName(), JsonCodec.RESPONSE_TYPES.contains(body));
+      }
+      for (int i = 0; i < handler.getParameterCount(); i++) {
+        MethodParameter parameter = new MethodParameter(handler, i);
+        if (parameter.hasParameterAnnotation(RequestBody.class)) {
+          assertTrue(handler + " reads " + parameter.getParameterType().getName(),
+              JsonCodec.REQUEST_TYPES.contains(parameter.getParameterType()));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.support;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PersistenceExecutorTest {
+  @Mock
+  private EntityManagerFactory entityManagerFactory;
+  @Mock
+  private EntityManager entityManager;
+
+  private PersistenceExecutor persistenceExecutor;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+    persistenceExecutor = new PersistenceExecutor(entityManagerFactory, 1, 10, 1, 1000);
+  }
+
+  @After
+  public void tearDown() {
+    persistenceExecutor.shutdown();
+  }
+
+  @Test
+  public void submit_runsWithBoundEntityManager() throws Exception {
+    CompletableFuture<Boolean> bound = persistenceExecutor.submit(
+        () -> TransactionSynchronizationManager.hasResource(entityManagerFactory));
+
+    assertTrue(bound.get(5, TimeUnit.SECONDS));
+    verify(entityManager).close();
+    assertEquals(1, persistenceExecutor.getPoolSize());
+  }
+
+  @Test
+  public void submit_poolSizedToConnectionPool() {
+    PersistenceExecutor sizedExecutor = new PersistenceExecutor(entityManagerFactory, 0, 10, 1, 1000);
+    assertEquals(10, sizedExecutor.getPoolSize());
+    sizedExecutor.shutdown();
+  }
+
+  @Test
+  public void submit_failureCompletesExceptionally() throws Exception {
+    CompletableFuture<Object> result = persistenceExecutor.submit(() -> {
+      throw new IllegalStateException("database is down");
+    });
+
+    try {
+      result.get(5, TimeUnit.SECONDS);
+      fail("The failure was swallowed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    verify(entityManager).close();
+  }
+
+  @Test
+  public void submit_rejectsWhenQueueIsFullAndSkipsAbandonedTasks() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean abandonedRan = new AtomicBoolean();
+    CompletableFuture<Object> running = persistenceExecutor.submit(() -> {
+      started.countDown();
+      return release.await(5, TimeUnit.SECONDS);
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<Object> queued = persistenceExecutor.submit(() -> abandonedRan.getAndSet(true));
+
+    try {
+      persistenceExecutor.submit(() -> null);
+      fail("Task was accepted into a full queue");
+    } catch (RejectedExecutionException e) {
+      assertEquals(1, persistenceExecutor.getRejectedCount());
+    }
+
+    persistenceExecutor.abandon(queued);
+    release.countDown();
+    running.get(5, TimeUnit.SECONDS);
+    // The worker completes the future before it takes the abandoned task off the queue
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (persistenceExecutor.getQueueSize() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(persistenceExecutor.submit(() -> true).get(5, TimeUnit.SECONDS));
+    assertFalse(abandonedRan.get());
+    assertEquals(1, persistenceExecutor.getTimedOutCount());
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.support.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements each HTTP request performed by the annotated test may send to the database.
+ * A JDBC batch counts as one statement. Enforced by {@link QueryBudgetRule}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+  int value();
+}
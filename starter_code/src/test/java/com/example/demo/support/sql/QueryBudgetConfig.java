@@ -0,0 +1,63 @@
+package com.example.demo.support.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Routes the application {@link DataSource} through datasource-proxy and registers a filter ahead of the security
+ * chain, so every statement a request causes, authentication included, is attributed to it.
+ */
+@TestConfiguration
+public class QueryBudgetConfig {
+
+  @Bean
+  public static StatementRecorder statementRecorder() {
+    return new StatementRecorder();
+  }
+
+  @Bean
+  public static BeanPostProcessor countingDataSourcePostProcessor(ObjectProvider<StatementRecorder> statementRecorder) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource) {
+          return ProxyDataSourceBuilder.create((DataSource) bean)
+              .name(beanName)
+              .listener(statementRecorder.getObject())
+              .build();
+        }
+        return bean;
+      }
+    };
+  }
+
+  @Bean
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public OncePerRequestFilter statementRecordingFilter(StatementRecorder statementRecorder) {
+    return new OncePerRequestFilter() {
+      @Override
+      protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+          throws ServletException, IOException {
+        statementRecorder.begin();
+        try {
+          chain.doFilter(request, response);
+        } finally {
+          statementRecorder.end(request.getMethod() + " " + request.getRequestURI());
+        }
+      }
+    };
+  }
+}
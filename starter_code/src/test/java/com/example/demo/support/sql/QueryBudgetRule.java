@@ -0,0 +1,68 @@
+package com.example.demo.support.sql;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Fails a test annotated with {@link QueryBudget} when any request it performed sent more statements than the
+ * budget, and logs the statements of the offending request.
+ */
+public class QueryBudgetRule implements TestRule {
+  private final Logger logger = LoggerFactory.getLogger(QueryBudgetRule.class);
+  private final Supplier<StatementRecorder> statementRecorder;
+
+  /**
+   * The recorder is looked up lazily because the Spring test runner injects it after the rules are created.
+   */
+  public QueryBudgetRule(Supplier<StatementRecorder> statementRecorder) {
+    this.statementRecorder = statementRecorder;
+  }
+
+  @Override
+  public Statement apply(Statement base, Description description) {
+    QueryBudget budget = description.getAnnotation(QueryBudget.class);
+    if (budget == null) {
+      return base;
+    }
+    return new Statement() {
+      @Override
+      public void evaluate() throws Throwable {
+        StatementRecorder recorder = statementRecorder.get();
+        recorder.reset();
+        base.evaluate();
+        verify(recorder, budget.value());
+      }
+    };
+  }
+
+  private void verify(StatementRecorder recorder, int budget) {
+    assertFalse("No request was recorded, is the test using MockMvc with QueryBudgetConfig?",
+        recorder.getRequests().isEmpty());
+    StringBuilder failures = new StringBuilder();
+    for (StatementRecorder.RecordedRequest request : recorder.getRequests()) {
+      int count = request.getStatements().size();
+      if (count <= budget) {
+        continue;
+      }
+      StringBuilder report = new StringBuilder()
+          .append(request.getRequest()).append(" executed ").append(count)
+          .append(" statements, budget is ").append(budget);
+      for (String statement : request.getStatements()) {
+        report.append(System.lineSeparator()).append("    ").append(statement);
+      }
+      logger.error("Query budget exceeded: {}", report);
+      failures.append(System.lineSeparator()).append(report);
+    }
+    if (failures.length() > 0) {
+      fail("Query budget exceeded:" + failures);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.support.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the statements executed while a request is being served. MockMvc dispatches on the calling thread, so
+ * the statements of the current request are tracked per thread and anything run outside a request (test fixtures,
+ * startup) is ignored.
+ */
+public class StatementRecorder implements QueryExecutionListener {
+  private final ThreadLocal<List<String>> current = new ThreadLocal<>();
+  private final Queue<RecordedRequest> requests = new ConcurrentLinkedQueue<>();
+
+  public void begin() {
+    current.set(new ArrayList<>());
+  }
+
+  public void end(String request) {
+    List<String> statements = current.get();
+    current.remove();
+    if (statements != null) {
+      requests.add(new RecordedRequest(request, statements));
+    }
+  }
+
+  public List<RecordedRequest> getRequests() {
+    return new ArrayList<>(requests);
+  }
+
+  public void reset() {
+    requests.clear();
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    List<String> statements = current.get();
+    if (statements == null) {
+      return;
+    }
+    for (QueryInfo queryInfo : queryInfoList) {
+      if (execInfo.isBatch() && execInfo.getBatchSize() > 1) {
+        statements.add(queryInfo.getQuery() + " [batch of " + execInfo.getBatchSize() + "]");
+      } else {
+        statements.add(queryInfo.getQuery());
+      }
+    }
+  }
+
+  public static class RecordedRequest {
+    private final String request;
+    private final List<String> statements;
+
+    RecordedRequest(String request, List<String> statements) {
+      this.request = request;
+      this.statements = Collections.unmodifiableList(statements);
+    }
+
+    public String getRequest() {
+      return request;
+    }
+
+    public List<String> getStatements() {
+      return statements;
+    }
+  }
+}